@@ -0,0 +1,263 @@
+
+package com.meetme.android.horizontallistview;
+
+/**
+ * The viewport arithmetic of a {@link HorizontalListView}, free of any Android class so it can be run and measured on a plain
+ * JVM. The engine tracks which adapter positions are on screen and how far the leftmost of them is scrolled off the left edge, and
+ * tells its {@link Host} which items to bind, which children to recycle and where to position each child.
+ * <p>
+ * Coordinates are relative to the left edge of the view. The children are laid out from left to right, starting at the start
+ * padding plus the display offset, each separated by the divider width. A HorizontalListView with more than one row gives the
+ * engine columns instead of items, so a position is a column and a child is every view in that column.
+ */
+public class HorizontalLayoutEngine {
+    /** Carries out the operations the engine decides on. A HorizontalListView does this with real views. */
+    public static interface Host {
+        /** Gets the number of items in the adapter */
+        int getItemCount();
+
+        /** Gets the width of the area children are shown in, including padding */
+        int getViewportWidth();
+
+        /** Gets the padding before the first child */
+        int getStartPadding();
+
+        /** Gets the number of children currently added */
+        int getChildCount();
+
+        /** Gets the measured width of the child at the given index */
+        int getChildWidth(int index);
+
+        /**
+         * Binds and measures the item at the given adapter position, adding it as the first or the last child.
+         *
+         * @return The measured width of the new child
+         */
+        int addChild(int position, boolean atStart);
+
+        /** Recycles and removes the first or the last child */
+        void removeChild(boolean atStart);
+
+        /** Places the child at the given index with its left edge at left */
+        void layoutChild(int index, int left, int width);
+    }
+
+    private final Host mHost;
+
+    // The adapter position of the leftmost child, -1 if there is none
+    int mLeftPosition = -1;
+
+    // The adapter position of the rightmost child, -1 if there is none
+    int mRightPosition = -1;
+
+    // The distance from the start padding to the left edge of the leftmost child, zero or negative
+    int mDisplayOffset = 0;
+
+    int mDividerWidth = 0;
+
+    public HorizontalLayoutEngine(Host host) {
+        mHost = host;
+    }
+
+    /** Gets the adapter position of the leftmost child, or -1 if there is none */
+    public int getLeftPosition() {
+        return mLeftPosition;
+    }
+
+    /** Gets the adapter position of the rightmost child, or -1 if there is none */
+    public int getRightPosition() {
+        return mRightPosition;
+    }
+
+    /** Gets the distance from the start padding to the left edge of the leftmost child */
+    public int getDisplayOffset() {
+        return mDisplayOffset;
+    }
+
+    /** Gets the space between each child */
+    public int getDividerWidth() {
+        return mDividerWidth;
+    }
+
+    /** Sets the space between each child */
+    public void setDividerWidth(int dividerWidth) {
+        mDividerWidth = dividerWidth;
+    }
+
+    /** Forgets the children, the next fill starts with the first item */
+    public void reset() {
+        mLeftPosition = -1;
+        mRightPosition = -1;
+        mDisplayOffset = 0;
+    }
+
+    /**
+     * Starts again from the given item, the next fill adds it first. The host must already have removed every child.
+     *
+     * @param position The adapter position of the first item to add
+     * @param offset The offset of that item's left edge from the start padding
+     */
+    public void startAt(int position, int offset) {
+        mLeftPosition = position;
+        mRightPosition = position - 1;
+        mDisplayOffset = offset;
+    }
+
+    /** Records that the host slid every child by dx without positioning them again */
+    public void offset(int dx) {
+        mDisplayOffset += dx;
+    }
+
+    /** Gets the left edge of the leftmost child, or 0 if there is none */
+    public int getLeftEdge() {
+        return mHost.getChildCount() > 0 ? mHost.getStartPadding() + mDisplayOffset : 0;
+    }
+
+    /** Gets the right edge of the rightmost child, or 0 if there is none */
+    public int getRightEdge() {
+        final int childCount = mHost.getChildCount();
+        if (childCount == 0) {
+            return 0;
+        }
+
+        int right = mHost.getStartPadding() + mDisplayOffset + (childCount - 1) * mDividerWidth;
+        for (int i = 0; i < childCount; i++) {
+            right += mHost.getChildWidth(i);
+        }
+
+        return right;
+    }
+
+    /**
+     * Works out the farthest the list can be scrolled. Only meaningful once the last item is on screen.
+     *
+     * @param currentX The scroll position the children are laid out for
+     * @param renderWidth The width children are shown in, without padding
+     */
+    public int computeMaxX(int currentX, int renderWidth) {
+        return computeMaxX(currentX, renderWidth, 0);
+    }
+
+    /**
+     * Works out the farthest the list can be scrolled, given the width of the items after the rightmost child.
+     *
+     * @param currentX The scroll position the children are laid out for
+     * @param renderWidth The width children are shown in, without padding
+     * @param widthAfterRightEdge The width of every item after the rightmost child, including their dividers
+     */
+    public int computeMaxX(int currentX, int renderWidth, long widthAfterRightEdge) {
+        // Handle the case where the views do not fill at least 1 screen
+        final long maxX = currentX + getRightEdge() - mHost.getStartPadding() + widthAfterRightEdge - renderWidth;
+        return (int) Math.max(0, Math.min(maxX, Integer.MAX_VALUE - 1));
+    }
+
+    /**
+     * Removes the children that will be entirely off screen once the list is scrolled by dx.
+     *
+     * @return The number of children removed
+     */
+    public int removeNonVisibleChildren(final int dx) {
+        final int lastPosition = mHost.getItemCount() - 1;
+        int childCount = mHost.getChildCount();
+        int removed = 0;
+
+        // Loop removing the leftmost child, until that child is on the screen
+        int left = mHost.getStartPadding() + mDisplayOffset;
+        while (childCount > 0) {
+            final int width = mHost.getChildWidth(0);
+            if (left + width + dx > 0) {
+                break;
+            }
+
+            // The child is being completely removed so remove its width from the display offset and its divider if it has one.
+            // To remove add the size of the child and its divider (if it has one) to the offset.
+            // You need to add since its being removed from the left side, i.e. shifting the offset to the right.
+            mDisplayOffset += mLeftPosition == lastPosition ? width : mDividerWidth + width;
+            left += width + mDividerWidth;
+
+            mHost.removeChild(true);
+            mLeftPosition++;
+            childCount--;
+            removed++;
+        }
+
+        // Loop removing the rightmost child, until that child is on the screen
+        final int viewportWidth = mHost.getViewportWidth();
+        int right = getRightEdge();
+        while (childCount > 0) {
+            final int childLeft = right - mHost.getChildWidth(childCount - 1);
+            if (childLeft + dx < viewportWidth) {
+                break;
+            }
+
+            mHost.removeChild(false);
+            mRightPosition--;
+            childCount--;
+            removed++;
+            right = childLeft - mDividerWidth;
+        }
+
+        return removed;
+    }
+
+    /** Adds children to the left and right of the current ones until the screen will be full once scrolled by dx */
+    public void fillList(final int dx) {
+        // Add new children views to the right, until past the edge of the screen
+        fillListRight(getRightEdge(), dx);
+
+        // Add new children views to the left, until past the edge of the screen
+        fillListLeft(getLeftEdge(), dx);
+    }
+
+    /** Adds children after the rightmost one, whose right edge is at rightEdge, until past the right edge of the screen */
+    public void fillListRight(int rightEdge, final int dx) {
+        final int viewportWidth = mHost.getViewportWidth();
+        final int itemCount = mHost.getItemCount();
+
+        while (rightEdge + dx + mDividerWidth < viewportWidth && mRightPosition + 1 < itemCount) {
+            mRightPosition++;
+
+            // If mLeftPosition < 0 then this is the first time a view is being added, and left == right
+            if (mLeftPosition < 0) {
+                mLeftPosition = mRightPosition;
+            }
+
+            final int width = mHost.addChild(mRightPosition, false);
+
+            // If first view, then no divider to the left of it, otherwise add the space for the divider width
+            rightEdge += (mRightPosition == 0 ? 0 : mDividerWidth) + width;
+        }
+    }
+
+    /** Adds children before the leftmost one, whose left edge is at leftEdge, until past the left edge of the screen */
+    public void fillListLeft(int leftEdge, final int dx) {
+        while (leftEdge + dx - mDividerWidth > 0 && mLeftPosition >= 1) {
+            mLeftPosition--;
+            final int width = mHost.addChild(mLeftPosition, true);
+
+            // If first view, then no divider to the left of it
+            leftEdge -= mLeftPosition == 0 ? width : mDividerWidth + width;
+
+            // If on a clean edge then just remove the child, otherwise remove the divider as well
+            mDisplayOffset -= leftEdge + dx == 0 ? width : mDividerWidth + width;
+        }
+    }
+
+    /** Scrolls by dx and positions every child */
+    public void positionChildren(final int dx) {
+        final int childCount = mHost.getChildCount();
+
+        if (childCount > 0) {
+            mDisplayOffset += dx;
+            int left = mHost.getStartPadding() + mDisplayOffset;
+
+            for (int i = 0; i < childCount; i++) {
+                final int width = mHost.getChildWidth(i);
+                mHost.layoutChild(i, left, width);
+
+                // Increment our offset by added child's size and divider width
+                left += width + mDividerWidth;
+            }
+        }
+    }
+}
@@ -3,38 +3,54 @@ package com.meetme.android.horizontallistview;
 
 import android.annotation.SuppressLint;
 import android.annotation.TargetApi;
+import android.content.ComponentCallbacks2;
 import android.content.Context;
+import android.content.res.Configuration;
 import android.content.res.TypedArray;
 import android.database.DataSetObserver;
 import android.graphics.Canvas;
+import android.graphics.Paint;
 import android.graphics.Rect;
+import android.graphics.drawable.ColorDrawable;
 import android.graphics.drawable.Drawable;
 import android.os.Build;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.MessageQueue;
 import android.os.Parcelable;
+import android.os.Process;
+import android.support.v4.util.LruCache;
+import android.support.v4.view.MotionEventCompat;
+import android.support.v4.view.VelocityTrackerCompat;
 import android.support.v4.view.ViewCompat;
 import android.support.v4.widget.EdgeEffectCompat;
 import android.util.AttributeSet;
-import android.view.GestureDetector;
+import android.util.SparseArray;
+import android.view.Choreographer;
 import android.view.HapticFeedbackConstants;
 import android.view.MotionEvent;
+import android.view.VelocityTracker;
 import android.view.View;
+import android.view.ViewConfiguration;
 import android.view.ViewGroup;
+import android.view.ViewParent;
+import android.view.WindowManager;
 import android.widget.AdapterView;
 import android.widget.ListAdapter;
-import android.widget.ListView;
-import android.widget.ScrollView;
 import android.widget.Scroller;
 
 import java.util.ArrayList;
-import java.util.LinkedList;
-import java.util.List;
-import java.util.Queue;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 
 // @formatter:off
 /*
  * <li>Does not support keyboard navigation</li>
- * <li>Does not support scroll bars<li>
+ * <li>Does not support scroll bars, only a fast-scroll thumb<li>
  * <li>Does not support header or footer views<li>
  * <li>Does not support disabled items<li>
  */
@@ -58,23 +74,164 @@ public class HorizontalListView extends AdapterView<ListAdapter> {
     //上一次状态的Bundle_Id,用于恢复到上一次状态
     private static final String BUNDLE_ID_PARENT_STATE = "BUNDLE_ID_PARENT_STATE";
 
+    //锚点:第一个可见item的adapter索引
+    private static final String BUNDLE_ID_ANCHOR_POSITION = "BUNDLE_ID_ANCHOR_POSITION";
+
+    //锚点:第一个可见item的id
+    private static final String BUNDLE_ID_ANCHOR_ITEM_ID = "BUNDLE_ID_ANCHOR_ITEM_ID";
+
+    //锚点:第一个可见item的像素偏移
+    private static final String BUNDLE_ID_ANCHOR_OFFSET = "BUNDLE_ID_ANCHOR_OFFSET";
+
+    /** The duration in ms of settling onto an item when snapping is enabled and the user lifts their finger without a fling */
+    private static final int SNAP_SETTLE_DURATION = 200;
+
+    /** The most screens smoothScrollToPosition animates over, any further distance is jumped */
+    private static final int SMOOTH_SCROLL_MAX_SCREENS = 2;
+
+    /** How far on either side of the saved anchor position to look for the anchor's item id when the data has moved */
+    private static final int ANCHOR_SEARCH_DISTANCE = 32;
+
+    //没有正在跟踪的手指
+    private static final int INVALID_POINTER = -1;
+
+    //测量缓存最多保存的item数量,超过时丢弃最久没有用到的item
+    private static final int MEASURE_CACHE_MAX_SIZE = 512;
+
+    /** The size in dip of the fast-scroll thumb, and the height in dip of the strip along the bottom it can be grabbed in */
+    private static final int FAST_SCROLL_THUMB_LENGTH_DIP = 48;
+    private static final int FAST_SCROLL_THUMB_THICKNESS_DIP = 4;
+    private static final int FAST_SCROLL_TOUCH_THICKNESS_DIP = 32;
+
+    /** The fast-scroll thumb is only shown when the list is at least this many screens wide */
+    private static final int FAST_SCROLL_MIN_PAGES = 4;
+
+    /** How long in ms the fast-scroll thumb stays on screen after the list stops scrolling */
+    private static final int FAST_SCROLL_HIDE_DELAY = 1500;
+
+    /** The color of the fast-scroll thumb when no drawable is set */
+    private static final int FAST_SCROLL_THUMB_COLOR = 0x99808080;
+
+    /** The memory hardware layers may use during a fling when no budget is set, in screens the size of the list */
+    private static final int FLING_LAYER_DEFAULT_SCREENS = 3;
+
+    /** The bytes each pixel of a hardware layer is counted as */
+    private static final int FLING_LAYER_BYTES_PER_PIXEL = 4;
+
+    /** The number of items, or columns with more than one row, bound ahead of the screen in the scroll direction */
+    private static final int PREFETCH_COLUMN_COUNT = 2;
+
+    /** The refresh rate assumed when the display reports one too low to be real, in frames per second */
+    private static final float DEFAULT_REFRESH_RATE = 60f;
+    private static final float MIN_REFRESH_RATE = 30f;
+
+    /** The number of positions an ItemWidthProvider is asked for at a time */
+    private static final int WIDTH_PROVIDER_BATCH_SIZE = 256;
+
+    /** The largest width an ItemWidthProvider can provide, the largest size a view can report as measured */
+    private static final int MAX_PROVIDED_WIDTH = 0x00ffffff;
+
+    //默认的item宽度计算线程,所有列表共用,第一次使用时创建
+    private static Executor sDefaultItemWidthExecutor;
+
     //跟踪滚动状态
     protected Scroller mFlingTracker = new Scroller(getContext());
 
-   //当手势被检测到时用于回调
-    private final GestureListener mGestureListener = new GestureListener();
+    //手指移动超过此距离(px)才开始拖动
+    private int mTouchSlop;
 
-    //用于检测以便他们能够回调
-    private GestureDetector mGestureDetector;
+    //触发跟踪滚动的最小和最大速度(px/s)
+    private int mMinimumFlingVelocity;
+    private int mMaximumFlingVelocity;
+
+    //跟踪手指速度,每次触摸复用同一个实例
+    private VelocityTracker mVelocityTracker;
+
+    //正在跟踪的手指id
+    private int mActivePointerId = INVALID_POINTER;
+
+    //手指按下的位置和上一次处理移动的位置
+    private float mDownX;
+    private float mDownY;
+    private float mLastMotionX;
+
+    //已处理过的按下事件的时间,用于避免同一个按下事件在拦截和处理时被处理两次
+    private long mLastDownTime = -1;
+
+    //用户是否正在拖动列表
+    private boolean mIsBeingDragged = false;
+
+    //本次触摸是否已经触发长按
+    private boolean mHasPerformedLongPress = false;
+
+    //把滚动和跟踪滚动传递给愿意配合的父视图
+    private final NestedScrollHelper mNestedScrollHelper = new NestedScrollHelper(this);
+
+    //本次触摸锁定的滚动方向,在手指移动超过触摸阈值时决定一次,0表示还没有决定
+    private int mScrollAxisLock = 0;
+
+    //父视图在嵌套滚动中消耗的距离和列表在窗口中移动的距离,复用以避免在触摸时分配
+    private final int[] mNestedScrollConsumed = new int[2];
+    private final int[] mNestedScrollOffset = new int[2];
+
+    //视口计算:可见的adapter索引,最左侧视图起始布局位置,以及填充、移除和定位子视图
+    private final HorizontalLayoutEngine mLayoutEngine = new HorizontalLayoutEngine(new LayoutHost());
 
-    //跟踪最左侧视图起始布局位置
-    private int mDisplayOffset;
-    
     //持有一个引用绑定数据到这个视图
     protected ListAdapter mAdapter;
     
     //回收视图缓存
-    private List<Queue<View>> mRemovedViewsCache = new ArrayList<Queue<View>>();
+    private RecycledViewPool mRecycledViewPool = new RecycledViewPool();
+
+    //回收视图缓存是否由多个HorizontalListView共享
+    private boolean mIsRecycledViewPoolShared = false;
+
+    //内存不足时用于清理回收视图缓存的回调,只在ICS以上注册
+    private Object mTrimMemoryCallbacks;
+
+    //正在预先创建视图的任务
+    private final ArrayList<PrewarmTask> mPrewarmTasks = new ArrayList<PrewarmTask>();
+
+    //用于把后台线程创建的视图交回UI线程,首次需要时创建
+    private Handler mMainHandler;
+
+    //是否在滚动时利用每帧剩余的时间预先绑定滚动方向上的下几个item
+    private boolean mItemPrefetchEnabled = false;
+
+    //预先绑定并测量好、还没有加入列表的视图,按adapter索引保存,下次填充列表时取用
+    private final SparseArray<View> mPrefetchedViews = new SparseArray<View>();
+
+    //是否已经安排了预取
+    private boolean mIsPrefetchScheduled = false;
+
+    //预取所在帧的开始时间和一帧的时长,单位纳秒
+    private long mPrefetchFrameTimeNanos;
+    private long mFrameIntervalNanos = (long) (1000000000 / DEFAULT_REFRESH_RATE);
+
+    //预先绑定并测量一个item平均花费的时间,单位纳秒
+    private long mPrefetchAverageNanos;
+
+    //最近一次滚动的方向,1表示向右滚动,-1表示向左
+    private int mLastScrollDirection;
+
+    //API 16以上在每帧开始时得到帧时间的Choreographer回调
+    private Object mPrefetchFrameCallback;
+
+    //预先创建的视图被使用的次数,即避免的视图创建次数
+    private int mAvoidedInflationCount = 0;
+
+    //可选的图片加载器,根据滚动状态和子视图回收调整加载
+    private ImageLoader mImageLoader;
+
+    //布局统计监听器,为null时不统计
+    private OnLayoutMetricsListener mOnLayoutMetricsListener;
+
+    //当前布局过程的统计和累计统计,启用统计时创建,之后每次布局复用
+    private LayoutMetrics mPassMetrics;
+    private LayoutMetrics mTotalMetrics;
+
+    //布局过程的嵌套深度,重做的布局计入同一个布局过程
+    private int mLayoutPassDepth = 0;
 
     //ListView视图数据改变
     private boolean mDataChanged = false;
@@ -90,6 +247,27 @@ public class HorizontalListView extends AdapterView<ListAdapter> {
 
     //divider drawable
     private Drawable mDivider = null;
+
+    //纯色分割线的画笔,为null时使用mDivider绘制
+    private Paint mDividerPaint = null;
+
+    //纯色分割线的线段坐标,每条分割线4个值,复用以避免每次绘制分配
+    private float[] mDividerLines = new float[0];
+
+    //item装饰,提供每个item的间距并在子视图前后绘制
+    private final ArrayList<ItemDecoration> mItemDecorations = new ArrayList<ItemDecoration>();
+
+    //用于获取item装饰间距的临时矩形
+    private final Rect mDecorationOffsets = new Rect();
+
+    //按稳定id保存的item测量结果,启用测量缓存时创建
+    private LruCache<Long, CachedMeasurement> mMeasureCache;
+
+    //固定的item宽度,为0时item使用各自测量的宽度
+    private int mFixedItemWidth = 0;
+
+    //行数,大于1时item按列从上到下排列,布局引擎处理的是列而不是item
+    private int mRowCount = 1;
     
     //当前渲染视图的x坐标
     protected int mCurrentX;
@@ -97,17 +275,46 @@ public class HorizontalListView extends AdapterView<ListAdapter> {
     //下一个渲染视图的x坐标
     protected int mNextX;
 
+    //fling开始之后滚动位置被数据改变移动的距离,加到mFlingTracker的位置上
+    private int mFlingTrackerOffset;
+
     //用于持有滚动位置用于恢复到之前状态
     private Integer mRestoreX = null;
+
+    //平滑滚动的目标列,当它出现在屏幕上时用于修正滚动的终点
+    private int mSmoothScrollTargetPosition = INVALID_POSITION;
+
+    //平滑滚动的目标item停靠的对齐方式
+    private SnapMode mSmoothScrollTargetAlignment = SnapMode.START;
+
+    //fling结束时item停靠的方式
+    private SnapMode mSnapMode = SnapMode.NONE;
+
+    //用于恢复或跳转的锚点adapter索引,item id和像素偏移,在下一次布局时使用
+    private int mPendingAnchorPosition = INVALID_POSITION;
+    private long mPendingAnchorItemId = INVALID_ROW_ID;
+    private int mPendingAnchorOffset;
     
     //用于跟踪最大可能的x坐标位置
     private int mMaxX = Integer.MAX_VALUE;
 
-    //最左侧当前可见的adapter索引
-    private int mLeftViewAdapterIndex;
-    
-    //最右侧可见的adapter索引
-    private int mRightViewAdapterIndex;
+    //每个adapter位置测量过的宽度
+    private final ItemWidthCache mItemWidths = new ItemWidthCache();
+
+    //在后台线程根据数据计算item宽度的提供者,以及调用它的线程池
+    private ItemWidthProvider mItemWidthProvider;
+    private Executor mItemWidthExecutor;
+
+    //为当前数据计算宽度的任务
+    private WidthProviderTask mWidthProviderTask;
+
+    //宽度缓存中由提供者计算出的宽度所在的adapter索引
+    private final BitSet mProvidedWidths = new BitSet();
+
+    //mMaxX未知时估计的最大x坐标位置,以及估计时最右侧item的adapter索引和宽度缓存的修改次数
+    private int mEstimatedMaxX = Integer.MAX_VALUE;
+    private int mEstimatedMaxXRightPosition = INVALID_POSITION;
+    private int mEstimatedMaxXModCount;
 
     //当前选中的adapter索引
     private int mCurrentlySelectedAdapterIndex;
@@ -139,18 +346,61 @@ public class HorizontalListView extends AdapterView<ListAdapter> {
     //用于跟踪是否触摸动作应该被阻止
     private boolean mBlockTouchAction = false;
 
-    //用于跟踪是否父垂直滚动视图已经被告知不允许拦截touch事件
-    private boolean mIsParentVerticiallyScrollableViewDisallowingInterceptTouchEvent = false;
+    //用于跟踪是否父视图已经被告知不允许拦截touch事件
+    private boolean mIsDisallowingParentInterceptTouchEvent = false;
 
     //点击监听器
     private OnClickListener mOnClickListener;
 
+    //是否显示快速滚动滑块
+    private boolean mFastScrollEnabled = false;
+
+    //是否在跟踪滚动时给子视图打开硬件层
+    private boolean mFlingLayersEnabled = false;
+
+    //当前是否在给子视图打开硬件层,从跟踪滚动开始到列表空闲
+    private boolean mFlingLayersActive = false;
+
+    //硬件层最多可以使用的字节数,为0时按列表自身大小计算
+    private int mFlingLayerBudget = 0;
+
+    //当前由列表打开的硬件层估计使用的字节数
+    private long mFlingLayerBytes = 0;
+
+    //快速滚动滑块的图片,为空时画成纯色矩形
+    private Drawable mFastScrollThumbDrawable;
+    private final Paint mFastScrollThumbPaint = new Paint();
+
+    //快速滚动滑块当前的位置,每次绘制前更新
+    private final Rect mFastScrollThumbBounds = new Rect();
+
+    //快速滚动滑块的尺寸(px)
+    private int mFastScrollThumbLength;
+    private int mFastScrollThumbThickness;
+    private int mFastScrollTouchThickness;
+
+    //快速滚动滑块当前是否可见,以及用户是否正在拖动它
+    private boolean mFastScrollThumbShown = false;
+    private boolean mIsDraggingFastScrollThumb = false;
+
+    //手指按下的位置到滑块左边缘的距离
+    private float mFastScrollGrabOffset;
+
+    //列表停止滚动一段时间后隐藏快速滚动滑块
+    private final Runnable mHideFastScrollThumb = new Runnable() {
+        @Override
+        public void run() {
+            if (!mIsDraggingFastScrollThumb) {
+                mFastScrollThumbShown = false;
+                invalidate();
+            }
+        }
+    };
+
     public HorizontalListView(Context context, AttributeSet attrs) {
         super(context, attrs);
         mEdgeGlowLeft = new EdgeEffectCompat(context);
         mEdgeGlowRight = new EdgeEffectCompat(context);
-        mGestureDetector = new GestureDetector(context, mGestureListener);
-        bindGestureDetector();
         initView();
         retrieveXmlConfiguration(context, attrs);
         //如果需要重绘,必须将此标记设置为false
@@ -160,42 +410,31 @@ public class HorizontalListView extends AdapterView<ListAdapter> {
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB) {
             HoneycombPlus.setFriction(mFlingTracker, FLING_FRICTION);
         }
-    }
 
-   //注册手势监听器用于获取手势通知
-    private void bindGestureDetector() {
-        //通用的触摸监听器,可以用于任意视图的手势监听
-    	final View.OnTouchListener gestureListenerHandler = new View.OnTouchListener() {
-            @Override
-            public boolean onTouch(final View v, final MotionEvent event) {
-                //代理触摸事件到我们的手势检测类
-            	return mGestureDetector.onTouchEvent(event);
-            }
-        };
+        final ViewConfiguration configuration = ViewConfiguration.get(context);
+        mTouchSlop = configuration.getScaledTouchSlop();
+        mMinimumFlingVelocity = configuration.getScaledMinimumFlingVelocity();
+        mMaximumFlingVelocity = configuration.getScaledMaximumFlingVelocity();
 
-        setOnTouchListener(gestureListenerHandler);
+        final float density = context.getResources().getDisplayMetrics().density;
+        mFastScrollThumbLength = (int) (FAST_SCROLL_THUMB_LENGTH_DIP * density + 0.5f);
+        mFastScrollThumbThickness = (int) (FAST_SCROLL_THUMB_THICKNESS_DIP * density + 0.5f);
+        mFastScrollTouchThickness = (int) (FAST_SCROLL_TOUCH_THICKNESS_DIP * density + 0.5f);
+        mFastScrollThumbPaint.setColor(FAST_SCROLL_THUMB_COLOR);
     }
 
     /**
-     * @param disallowIntercept If true the parent will be prevented from intercepting child touch events
+     * @param disallowIntercept If true the parents will be prevented from intercepting child touch events
      */
     
-    //如果HorizontalListView内嵌到垂直的ScrollView的时候,必须禁止父视图与用户的任何交互
-    private void requestParentListViewToNotInterceptTouchEvents(Boolean disallowIntercept) {
+    //列表拥有本次拖动后,禁止所有父视图拦截touch事件,不管它们是什么容器
+    private void requestDisallowParentInterceptTouchEvent(boolean disallowIntercept) {
         // Prevent calling this more than once needlessly
-        if (mIsParentVerticiallyScrollableViewDisallowingInterceptTouchEvent != disallowIntercept) {
-            View view = this;
-
-            while (view.getParent() instanceof View) {
-                // If the parent is a ListView or ScrollView then disallow intercepting of touch events
-                if (view.getParent() instanceof ListView || view.getParent() instanceof ScrollView) {
-                    view.getParent().requestDisallowInterceptTouchEvent(disallowIntercept);
-                    mIsParentVerticiallyScrollableViewDisallowingInterceptTouchEvent = disallowIntercept;
-                    return;
-                }
-
-                view = (View) view.getParent();
-            }
+        final ViewParent parent = getParent();
+        if (mIsDisallowingParentInterceptTouchEvent != disallowIntercept && parent != null) {
+            // Each ViewGroup passes the request on to its own parent, so this reaches every ancestor
+            parent.requestDisallowInterceptTouchEvent(disallowIntercept);
+            mIsDisallowingParentInterceptTouchEvent = disallowIntercept;
         }
     }
 
@@ -217,6 +456,21 @@ public class HorizontalListView extends AdapterView<ListAdapter> {
                 setDividerWidth(dividerWidth);
             }
 
+            // Get how flings should come to rest
+            final int snapMode = a.getInt(R.styleable.HorizontalListView_snapMode, 0);
+            if (snapMode != 0) {
+                setSnapMode(SnapMode.values()[snapMode]);
+            }
+
+            // If every item has the same width then use the fixed width fast path
+            final int fixedItemWidth = a.getDimensionPixelSize(R.styleable.HorizontalListView_fixedItemWidth, 0);
+            if (fixedItemWidth != 0) {
+                setFixedItemWidth(fixedItemWidth);
+            }
+
+            setFastScrollEnabled(a.getBoolean(R.styleable.HorizontalListView_android_fastScrollEnabled, false));
+            setRowCount(a.getInt(R.styleable.HorizontalListView_rowCount, 1));
+
             a.recycle();
         }
     }
@@ -234,6 +488,13 @@ public class HorizontalListView extends AdapterView<ListAdapter> {
         // Add our state to the bundle
         bundle.putInt(BUNDLE_ID_CURRENT_X, mCurrentX);
 
+        // Add the first visible item as an anchor so the list can be rebuilt from it without laying out everything before it
+        if (mAdapter != null && getChildCount() > 0 && mLayoutEngine.mLeftPosition >= 0) {
+            bundle.putInt(BUNDLE_ID_ANCHOR_POSITION, getFirstVisiblePosition());
+            bundle.putLong(BUNDLE_ID_ANCHOR_ITEM_ID, getLeftmostChildItemId());
+            bundle.putInt(BUNDLE_ID_ANCHOR_OFFSET, mLayoutEngine.mDisplayOffset);
+        }
+
         return bundle;
     }
 
@@ -244,6 +505,9 @@ public class HorizontalListView extends AdapterView<ListAdapter> {
 
             // Restore our state from the bundle
             mRestoreX = Integer.valueOf((bundle.getInt(BUNDLE_ID_CURRENT_X)));
+            mPendingAnchorPosition = bundle.getInt(BUNDLE_ID_ANCHOR_POSITION, INVALID_POSITION);
+            mPendingAnchorItemId = bundle.getLong(BUNDLE_ID_ANCHOR_ITEM_ID, INVALID_ROW_ID);
+            mPendingAnchorOffset = bundle.getInt(BUNDLE_ID_ANCHOR_OFFSET, 0);
 
             // Restore out parent's state from the bundle
             super.onRestoreInstanceState(bundle.getParcelable(BUNDLE_ID_PARENT_STATE));
@@ -256,6 +520,13 @@ public class HorizontalListView extends AdapterView<ListAdapter> {
     //getInstrinsicWidth  获取单位为dp的组件宽度
     public void setDivider(Drawable divider) {
         mDivider = divider;
+        mDividerPaint = null;
+
+        // A solid color can be drawn for every divider at once, but its color can only be read from API 11
+        if (divider instanceof ColorDrawable && Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB) {
+            mDividerPaint = new Paint();
+            mDividerPaint.setColor(HoneycombPlus.getColor((ColorDrawable) divider));
+        }
 
         if (divider != null) {
             setDividerWidth(divider.getIntrinsicWidth());
@@ -264,9 +535,23 @@ public class HorizontalListView extends AdapterView<ListAdapter> {
         }
     }
 
+    /**
+     * Sets a solid color divider. Every divider on screen is drawn in a single canvas operation. The width is left unchanged,
+     * so set it with {@link #setDividerWidth(int)}.
+     *
+     * @param color The color of the dividers
+     */
+    public void setDividerColor(int color) {
+        mDivider = null;
+        mDividerPaint = new Paint();
+        mDividerPaint.setColor(color);
+        invalidate();
+    }
+
    //设置宽度
     public void setDividerWidth(int width) {
         mDividerWidth = width;
+        mLayoutEngine.setDividerWidth(width);
         
         /*requestLayout：当view确定自身已经不再适合现有的区域时，该view本身调用这个方法要求parent view重新调用他的onMeasure onLayout来对重新设置自己位置。
 
@@ -276,20 +561,177 @@ public class HorizontalListView extends AdapterView<ListAdapter> {
         invalidate();
     }
 
+    /**
+     * Sets a width that every item is measured and laid out with. Since every item is then the same width, the maximum scroll
+     * position is known as soon as there is an adapter, positions convert to scroll offsets with simple arithmetic, and a jump
+     * to any position only binds the items that end up on the screen. Views that are rebound without requesting a layout are
+     * not measured again.
+     *
+     * @param width The width in px of every item, or 0 to measure each item for its own width
+     */
+    public void setFixedItemWidth(int width) {
+        mFixedItemWidth = width;
+        clearItemWidths();
+
+        // Rebind the children so they are measured for the new width
+        mDataChanged = true;
+        requestLayout();
+        invalidate();
+    }
+
+    /** Gets the width every item is given, or 0 if the items are measured for their own widths */
+    public int getFixedItemWidth() {
+        return mFixedItemWidth;
+    }
+
+    /**
+     * Sets the number of rows. With more than one row the items are placed in columns from top to bottom, and the columns
+     * from left to right, each row getting an equal share of the height. Each item is still its own view, bound and recycled on
+     * its own. The list scrolls back to the start. With more than one row, range notifications rebind the whole screen like
+     * notifyDataSetChanged, and an {@link ItemWidthProvider} is not used.
+     *
+     * @param rowCount The number of rows, at least 1
+     */
+    public void setRowCount(int rowCount) {
+        rowCount = Math.max(1, rowCount);
+        if (rowCount == mRowCount) {
+            return;
+        }
+
+        mRowCount = rowCount;
+
+        // Everything measured was measured per column
+        clearItemWidths();
+        reset();
+    }
+
+    /** Gets the number of rows */
+    public int getRowCount() {
+        return mRowCount;
+    }
+
+    //获取列数,只有一行时每个item是一列
+    private int getColumnCount() {
+        return mAdapter != null ? (mAdapter.getCount() + mRowCount - 1) / mRowCount : 0;
+    }
+
+    //获取adapter索引所在的列
+    private int getColumnForPosition(int position) {
+        return position / mRowCount;
+    }
+
+    //获取列中第一个item的adapter索引
+    private int getFirstPositionInColumn(int column) {
+        return column * mRowCount;
+    }
+
+    //获取屏幕上的列数,只有adapter的最后一列可能不满
+    private int getOnScreenColumnCount() {
+        return (getChildCount() + mRowCount - 1) / mRowCount;
+    }
+
+    //获取屏幕上第columnIndex列的宽度,即该列最宽的子视图加上item装饰所占的宽度
+    private int getColumnWidth(int columnIndex) {
+        final int start = columnIndex * mRowCount;
+        final int end = Math.min(start + mRowCount, getChildCount());
+
+        int width = 0;
+        for (int i = start; i < end; i++) {
+            width = Math.max(width, getDecoratedWidth(getChildAt(i)));
+        }
+
+        return width;
+    }
+
+    //获取屏幕上第columnIndex列中最宽的子视图的测量宽度
+    private int getColumnMeasuredWidth(int columnIndex) {
+        final int start = columnIndex * mRowCount;
+        final int end = Math.min(start + mRowCount, getChildCount());
+
+        int width = 0;
+        for (int i = start; i < end; i++) {
+            width = Math.max(width, getChildAt(i).getMeasuredWidth());
+        }
+
+        return width;
+    }
+
+    //获取屏幕上某一列的第一个子视图,该列不在屏幕上时返回null
+    private View getColumnChild(int column) {
+        if (column >= mLayoutEngine.mLeftPosition && column <= mLayoutEngine.mRightPosition) {
+            return getChildAt((column - mLayoutEngine.mLeftPosition) * mRowCount);
+        }
+
+        return null;
+    }
+
+    //获取某一行的顶部位置
+    private int getRowTop(int row) {
+        return getPaddingTop() + row * getRenderHeight() / mRowCount;
+    }
+
+    //固定item宽度时每个item和它的分割线所占的宽度
+    private int getFixedItemStride() {
+        return mFixedItemWidth + mDividerWidth;
+    }
+
+    /**
+     * Forgets the maximum x position. When the items have a fixed width it is calculated again straight away, otherwise it is
+     * unknown until the last item is laid out.
+     */
+    private void resetMaxX() {
+        if (mFixedItemWidth > 0 && mAdapter != null && getWidth() > 0) {
+            // The last item has no divider after it
+            mMaxX = Math.max(0, getColumnCount() * getFixedItemStride() - mDividerWidth - getRenderWidth());
+        } else {
+            mMaxX = Integer.MAX_VALUE;
+        }
+
+        // Estimate it again the next time it is determined
+        mEstimatedMaxX = Integer.MAX_VALUE;
+        mEstimatedMaxXRightPosition = INVALID_POSITION;
+    }
+
+    /**
+     * When the items have a fixed width and the list is moving further than the width of the screen, lays out the items at
+     * mNextX directly instead of walking through every item in between.
+     *
+     * @param dx The distance the list is moving
+     * @return true if the children were replaced, in which case they still need to be positioned
+     */
+    private boolean jumpToNextXIfFixedWidth(final int dx) {
+        if (mFixedItemWidth <= 0 || Math.abs(dx) < getWidth() || mAdapter.getCount() == 0) {
+            return false;
+        }
+
+        final int stride = getFixedItemStride();
+        final int position = Math.min(mNextX / stride, getColumnCount() - 1);
+        layoutFromAnchor(position, position * stride - mNextX, mNextX);
+        return true;
+    }
+
     private void initView() {
-        mLeftViewAdapterIndex = -1;
-        mRightViewAdapterIndex = -1;
-        mDisplayOffset = 0;
+        mLayoutEngine.reset();
         mCurrentX = 0;
         mNextX = 0;
-        mMaxX = Integer.MAX_VALUE;
+        resetMaxX();
         setCurrentScrollState(OnScrollStateChangedListener.ScrollState.SCROLL_STATE_IDLE);
     }
 
     //重新初始化HorizontalListView 移除所有的子视图,重置到初始配置
     private void reset() {
         initView();
-        removeAllViewsInLayout();
+        stopFlingLayers();
+        cancelPrefetch();
+        clearPrefetchedViews(mIsRecycledViewPoolShared);
+
+        if (mIsRecycledViewPoolShared) {
+            // Other lists can use these views even if this list's next adapter can not
+            recycleAllChildren();
+        } else {
+            removeAllViewsInLayout();
+        }
+
         requestLayout();
     }
 
@@ -299,6 +741,13 @@ public class HorizontalListView extends AdapterView<ListAdapter> {
         public void onChanged() {
             mDataChanged = true;
 
+            // Without content versions there is no telling which items changed
+            if (!(mAdapter instanceof ItemContentVersionProvider)) {
+                clearMeasureCache();
+            }
+
+            clearItemWidths();
+
             // Clear so we can notify again as we run out of data
             mHasNotifiedRunningLowOnData = false;
 
@@ -313,6 +762,8 @@ public class HorizontalListView extends AdapterView<ListAdapter> {
         public void onInvalidated() {
             // Clear so we can notify again as we run out of data
             mHasNotifiedRunningLowOnData = false;
+            clearMeasureCache();
+            clearItemWidths();
 
             unpressTouchedChild();
             reset();
@@ -323,110 +774,1478 @@ public class HorizontalListView extends AdapterView<ListAdapter> {
         }
     };
     
-    //设置当前选中的item
-    @Override
-    public void setSelection(int position) {
-        mCurrentlySelectedAdapterIndex = position;
-    }
-    
-    //获取选中的视图
-    @Override
-    public View getSelectedView() {
-        return getChild(mCurrentlySelectedAdapterIndex);
-    }
-    
-    
-    //设置Adapter
-    @Override
-    public void setAdapter(ListAdapter adapter) {
-        if (mAdapter != null) {
-            mAdapter.unregisterDataSetObserver(mAdapterDataObserver);
+    //用于捕获adapter的局部数据改变事件,只重新绑定受影响的可见子视图
+    private ItemRangeObserver mItemRangeObserver = new ItemRangeObserver() {
+        @Override
+        public void onItemRangeChanged(int positionStart, int itemCount) {
+            // Views prefetched off screen are bound to what was at their positions
+            clearPrefetchedViews(true);
+
+            if (mMeasureCache != null && mAdapter != null) {
+                // The changed items have to be measured again
+                final int end = Math.min(positionStart + itemCount, mAdapter.getCount());
+                for (int position = Math.max(positionStart, 0); position < end; position++) {
+                    mMeasureCache.remove(mAdapter.getItemId(position));
+                }
+            }
+
+            // The visible items are measured again as they are rebound
+            final int firstColumn = getColumnForPosition(positionStart);
+            mItemWidths.invalidate(firstColumn, getColumnForPosition(positionStart + itemCount - 1) - firstColumn + 1);
+            mProvidedWidths.clear(Math.max(positionStart, 0), Math.max(positionStart + itemCount, 0));
+            cancelItemWidthProvider();
+
+            if (canUpdateChildrenInPlace()) {
+                rebindChildren(positionStart, itemCount);
+                finishUpdatingChildrenInPlace(false);
+            }
         }
 
-        if (adapter != null) {
+        @Override
+        public void onItemRangeInserted(int positionStart, int itemCount) {
+            clearPrefetchedViews(true);
+
             // Clear so we can notify again as we run out of data
             mHasNotifiedRunningLowOnData = false;
+            if (mRowCount > 1) {
+                // Every later item moves to another column
+                clearItemWidths();
+            } else {
+                mItemWidths.onItemRangeInserted(positionStart, itemCount);
+                insertProvidedWidths(positionStart, itemCount);
+                cancelItemWidthProvider();
+            }
 
-            mAdapter = adapter;
-            mAdapter.registerDataSetObserver(mAdapterDataObserver);
+            if (canUpdateChildrenInPlace()) {
+                insertChildren(positionStart, itemCount);
+                finishUpdatingChildrenInPlace(true);
+            }
         }
 
-        initializeRecycledViewCache(mAdapter.getViewTypeCount());
-        reset();
-    }
+        @Override
+        public void onItemRangeRemoved(int positionStart, int itemCount) {
+            clearPrefetchedViews(true);
 
-    @Override
-    public ListAdapter getAdapter() {
-        return mAdapter;
-    }
+            if (canUpdateChildrenInPlace()) {
+                removeChildren(positionStart, itemCount);
+                finishUpdatingChildrenInPlace(true);
+            }
 
-    //初始化回收视图缓存
-    private void initializeRecycledViewCache(int viewTypeCount) {
-        // The cache is created such that the response from mAdapter.getItemViewType is the array index to the correct cache for that item.
-        mRemovedViewsCache.clear();
-        for (int i = 0; i < viewTypeCount; i++) {
-            mRemovedViewsCache.add(new LinkedList<View>());
+            // Removed after the children, which still need the widths of the removed items
+            if (mRowCount > 1) {
+                clearItemWidths();
+            } else {
+                mItemWidths.onItemRangeRemoved(positionStart, itemCount);
+                removeProvidedWidths(positionStart, itemCount);
+                cancelItemWidthProvider();
+            }
         }
-    }
 
-    //从缓存中返回一个能被使用的回收视图,如果没有一个可以使用就返回null
-    private View getRecycledView(int adapterIndex) {
-        int itemViewType = mAdapter.getItemViewType(adapterIndex);
+        @Override
+        public void onItemMoved(int fromPosition, int toPosition) {
+            clearPrefetchedViews(true);
+
+            cancelItemWidthProvider();
+
+            if (canUpdateChildrenInPlace()) {
+                // A move is a removal followed by an insertion, when both ends are off screen no view is bound
+                removeChildren(fromPosition, 1);
+                mItemWidths.onItemMoved(fromPosition, toPosition);
+                moveProvidedWidth(fromPosition, toPosition);
+                insertChildren(toPosition, 1);
+                finishUpdatingChildrenInPlace(true);
+            } else if (mRowCount > 1) {
+                clearItemWidths();
+            } else {
+                mItemWidths.onItemMoved(fromPosition, toPosition);
+                moveProvidedWidth(fromPosition, toPosition);
+            }
+        }
+    };
+
+    /**
+     * Determines if a range notification can be applied to the current children. If not, then the whole list is rebound on
+     * the next layout pass, the same as for notifyDataSetChanged.
+     */
+    private boolean canUpdateChildrenInPlace() {
+        unpressTouchedChild();
+
+        if (mAdapter == null) {
+            return false;
+        }
 
-        if (isItemViewTypeValid(itemViewType)) {
-            return mRemovedViewsCache.get(itemViewType).poll();
+        // With more than one row an update can move any later item to another column, so rebind the screen instead
+        if (mDataChanged || mRestoreX != null || isLayoutRequested() || getChildCount() == 0 || mRowCount > 1) {
+            mDataChanged = true;
+            invalidate();
+            requestLayout();
+            return false;
         }
 
-        return null;
+        // Updating the children is counted as a layout pass, which finishUpdatingChildrenInPlace ends
+        beginLayoutPass();
+        return true;
     }
 
-    //增加视图到回收缓存
-    private void recycleView(int adapterIndex, View view) {
-        // There is one Queue of views for each different type of view.
-        // Just add the view to the pile of other views of the same type.
-        // The order they are added and removed does not matter.
-        int itemViewType = mAdapter.getItemViewType(adapterIndex);
-        if (isItemViewTypeValid(itemViewType)) {
-            mRemovedViewsCache.get(itemViewType).offer(view);
+    /** Rebinds the visible children for the changed adapter positions */
+    private void rebindChildren(int positionStart, int itemCount) {
+        final int first = Math.max(positionStart, mLayoutEngine.mLeftPosition);
+        final int last = Math.min(positionStart + itemCount - 1, mLayoutEngine.mRightPosition);
+
+        for (int position = first; position <= last; position++) {
+            final int index = position - mLayoutEngine.mLeftPosition;
+            final View oldChild = getChildAt(index);
+
+            // The old view can only be handed back to the adapter if it is still the right type
+            final View convertView = getLayoutParams(oldChild).viewType == mAdapter.getItemViewType(position) ? oldChild : getRecycledView(position);
+            final View child = obtainView(position, convertView);
+
+            if (child == oldChild) {
+                // Rebound in place, so only its size may have changed
+                bindLayoutParams(getLayoutParams(child), position);
+                measureChild(child);
+            } else {
+                recycleChild(oldChild);
+                removeViewInLayout(oldChild);
+                addAndMeasureChild(child, index, position);
+            }
         }
     }
-    
-    //视图类型是否已经失效
-    private boolean isItemViewTypeValid(int itemViewType) {
-        return itemViewType < mRemovedViewsCache.size();
-    }
 
-    //增加一个子视图到ViewGroup并检测它是否已经渲染到了正确的尺寸
-    private void addAndMeasureChild(final View child, int viewPos) {
-        LayoutParams params = getLayoutParams(child);
-        addViewInLayout(child, viewPos, params, true);
-        measureChild(child);
-    }
-    
-    //检测提供的子类
-    private void measureChild(View child) {
-        ViewGroup.LayoutParams childLayoutParams = getLayoutParams(child);
-        int childHeightSpec = ViewGroup.getChildMeasureSpec(mHeightMeasureSpec, getPaddingTop() + getPaddingBottom(), childLayoutParams.height);
+    /**
+     * Updates the children for items inserted into the adapter. Items inserted before the screen only move the adapter indices
+     * and the scroll position, so what is shown does not change. Items inserted on screen are bound, and the views they push
+     * off the right of the screen are recycled.
+     */
+    private void insertChildren(int positionStart, int itemCount) {
+        if (positionStart <= mLayoutEngine.mLeftPosition) {
+            mLayoutEngine.mLeftPosition += itemCount;
+            mLayoutEngine.mRightPosition += itemCount;
+            shiftScrollPosition(estimateRangeWidth(positionStart, positionStart + itemCount));
+        } else if (positionStart <= mLayoutEngine.mRightPosition) {
+            final int insertIndex = positionStart - mLayoutEngine.mLeftPosition;
+            int left = getChildAt(insertIndex).getLeft();
+            int inserted = 0;
+
+            // Only bind the inserted items until the screen is full
+            while (inserted < itemCount && left < getWidth()) {
+                final int position = positionStart + inserted;
+                final View child = obtainView(position, getRecycledView(position));
+                addAndMeasureChild(child, insertIndex + inserted, position);
+
+                left += getDecoratedWidth(child) + mDividerWidth;
+                inserted++;
+            }
+
+            if (inserted < itemCount) {
+                // The rest of the inserted items, and everything that was after them, are now off the screen
+                while (getChildCount() > insertIndex + inserted) {
+                    final View child = getRightmostChild();
+                    recycleChild(child);
+                    removeViewInLayout(child);
+                }
+
+                mLayoutEngine.mRightPosition = positionStart + inserted - 1;
+            } else {
+                mLayoutEngine.mRightPosition += itemCount;
+            }
+        }
+
+        // Items inserted after the screen are picked up by fillList if there is room for them
+    }
+
+    /**
+     * Updates the children for items removed from the adapter. Views for removed items that are on screen are recycled, and
+     * items removed before the screen move the scroll position back so that what is shown does not change.
+     */
+    private void removeChildren(int positionStart, int itemCount) {
+        final int positionEnd = positionStart + itemCount - 1;
+
+        if (positionEnd < mLayoutEngine.mLeftPosition) {
+            mLayoutEngine.mLeftPosition -= itemCount;
+            mLayoutEngine.mRightPosition -= itemCount;
+            shiftScrollPosition(-estimateRangeWidth(positionStart, positionEnd + 1));
+        } else if (positionStart <= mLayoutEngine.mRightPosition) {
+            final int first = Math.max(positionStart, mLayoutEngine.mLeftPosition);
+            final int last = Math.min(positionEnd, mLayoutEngine.mRightPosition);
+
+            for (int position = last; position >= first; position--) {
+                final View child = getChildAt(position - mLayoutEngine.mLeftPosition);
+                recycleChild(child);
+                removeViewInLayout(child);
+            }
+
+            if (positionStart < mLayoutEngine.mLeftPosition) {
+                shiftScrollPosition(-estimateRangeWidth(positionStart, mLayoutEngine.mLeftPosition));
+                mLayoutEngine.mLeftPosition = positionStart;
+            }
+
+            mLayoutEngine.mRightPosition = mLayoutEngine.mLeftPosition + getChildCount() - 1;
+
+            // If every view on screen was removed then start again from the item that took the place of the first one
+            if (getChildCount() == 0) {
+                final int count = mAdapter.getCount();
+
+                if (count > 0) {
+                    layoutFromAnchor(Math.min(mLayoutEngine.mLeftPosition, count - 1), mLayoutEngine.mDisplayOffset, mCurrentX);
+                } else {
+                    initView();
+                }
+            }
+        }
+    }
+
+    /**
+     * Lays out the children after they were updated in place, filling any gap left on the screen and recycling any view pushed
+     * off it.
+     *
+     * @param countChanged True if items were inserted or removed, in which case the maximum x position has to be determined again
+     */
+    private void finishUpdatingChildrenInPlace(boolean countChanged) {
+        // Children that were not rebound may have moved to new adapter positions
+        for (int i = getChildCount() - 1; i >= 0; i--) {
+            getLayoutParams(getChildAt(i)).position = mLayoutEngine.mLeftPosition + i;
+        }
+
+        if (getChildCount() > 0) {
+            positionChildren(0);
+            removeNonVisibleChildren(0);
+            fillList(0);
+            positionChildren(0);
+        }
+
+        // The first item is always at 0, so correct any error in the estimated scroll position
+        if (mLayoutEngine.mLeftPosition == 0) {
+            shiftScrollPosition(-mLayoutEngine.mDisplayOffset - mCurrentX);
+        }
+
+        if (countChanged) {
+            resetMaxX();
+        }
+
+        determineMaxX();
+
+        // If the list is now scrolled past its end let a layout pass bring it back
+        if (mCurrentX > mMaxX) {
+            requestLayout();
+        }
+
+        invalidate();
+        endLayoutPass();
+    }
+
+    /** Moves the scroll position without moving any view, used when items are added or removed off the left of the screen */
+    private void shiftScrollPosition(int delta) {
+        mCurrentX += delta;
+        mNextX += delta;
+        mFlingTrackerOffset += delta;
+    }
+
+    /** Estimates the width taken by an item that has not been laid out, including its divider */
+    private int estimateItemWidth() {
+        if (mFixedItemWidth > 0) {
+            return getFixedItemStride();
+        }
+
+        // Refined as more items are measured
+        final int estimatedWidth = mItemWidths.getEstimatedWidth();
+        if (estimatedWidth != ItemWidthCache.UNKNOWN_WIDTH) {
+            return estimatedWidth + mDividerWidth;
+        }
+
+        final int columnCount = getOnScreenColumnCount();
+        if (columnCount == 0) {
+            return 0;
+        }
+
+        return (getRightmostChild().getRight() - getLeftmostChild().getLeft() + mDividerWidth) / columnCount;
+    }
+
+    /**
+     * Estimates the width taken by the items from positionStart up to, but not including, positionEnd, including their dividers.
+     * Items that have been measured count at their measured width.
+     */
+    private int estimateRangeWidth(int positionStart, int positionEnd) {
+        if (mFixedItemWidth > 0) {
+            return (positionEnd - positionStart) * getFixedItemStride();
+        }
+
+        final int estimatedWidth = Math.max(0, estimateItemWidth() - mDividerWidth);
+        return (int) mItemWidths.sumWidths(positionStart, positionEnd, estimatedWidth) + (positionEnd - positionStart) * mDividerWidth;
+    }
+
+    //清空记录的item宽度,并停止为旧数据计算宽度
+    private void clearItemWidths() {
+        mItemWidths.clear(getColumnCount());
+        mProvidedWidths.clear();
+        cancelItemWidthProvider();
+
+        // Views prefetched for the old widths have to be measured again
+        clearPrefetchedViews(true);
+    }
+
+    //设置当前选中的item
+    @Override
+    public void setSelection(int position) {
+        mCurrentlySelectedAdapterIndex = position;
+    }
+    
+    //获取选中的视图
+    @Override
+    public View getSelectedView() {
+        return getChild(mCurrentlySelectedAdapterIndex);
+    }
+    
+    
+    //设置Adapter
+    @Override
+    public void setAdapter(ListAdapter adapter) {
+        if (mAdapter != null) {
+            mAdapter.unregisterDataSetObserver(mAdapterDataObserver);
+
+            if (mAdapter instanceof ItemRangeNotifier) {
+                ((ItemRangeNotifier) mAdapter).unregisterItemRangeObserver(mItemRangeObserver);
+            }
+        }
+
+        // Views being created for the old adapter may not suit the new one
+        cancelPrewarm();
+        cancelPrefetch();
+        clearPrefetchedViews(true);
+        clearMeasureCache();
+
+        if (adapter != null) {
+            // Clear so we can notify again as we run out of data
+            mHasNotifiedRunningLowOnData = false;
+
+            mAdapter = adapter;
+            mAdapter.registerDataSetObserver(mAdapterDataObserver);
+
+            if (mAdapter instanceof ItemRangeNotifier) {
+                ((ItemRangeNotifier) mAdapter).registerItemRangeObserver(mItemRangeObserver);
+            }
+        }
+
+        initializeRecycledViewCache(mAdapter.getViewTypeCount());
+        clearItemWidths();
+        reset();
+    }
+
+    @Override
+    public ListAdapter getAdapter() {
+        return mAdapter;
+    }
+
+    //初始化回收视图缓存
+    private void initializeRecycledViewCache(int viewTypeCount) {
+        // The cache is created such that the response from mAdapter.getItemViewType is the index of the correct queue for that item.
+        // A shared pool is kept since its views belong to the other lists' adapters as well.
+        if (!mIsRecycledViewPoolShared) {
+            mRecycledViewPool.clear();
+        }
+
+        mRecycledViewPool.setViewTypeCount(viewTypeCount);
+    }
+
+    /** Gets the pool that holds the views removed from this list until they are reused */
+    public RecycledViewPool getRecycledViewPool() {
+        return mRecycledViewPool;
+    }
+
+    /**
+     * Sets a pool to hold the views removed from this list until they are reused. The same pool can be set on several
+     * HorizontalListViews, such as carousels in the rows of a ListView, so that the views one of them removes can be used to
+     * fill another instead of inflating new ones. Views are shared by view type, so every adapter used with a shared pool must
+     * return the same type from {@code getItemViewType} only for views that are interchangeable. A shared pool is not cleared
+     * when a list is detached or given a new adapter, and when a list is reset its children are put into the pool.
+     *
+     * @param pool The pool to share, or null to go back to a pool owned only by this list
+     */
+    public void setRecycledViewPool(RecycledViewPool pool) {
+        if (pool == mRecycledViewPool) {
+            return;
+        }
+
+        if (!mIsRecycledViewPoolShared) {
+            mRecycledViewPool.clear();
+        }
+
+        mIsRecycledViewPoolShared = pool != null;
+        mRecycledViewPool = pool != null ? pool : new RecycledViewPool();
+
+        if (mAdapter != null) {
+            mRecycledViewPool.setViewTypeCount(mAdapter.getViewTypeCount());
+        }
+    }
+
+    /**
+     * Sets the most views of the given type that are kept for reuse once they scroll off the screen.
+     *
+     * @param viewType The view type, as returned by {@code Adapter#getItemViewType(int)}
+     * @param max The most views of that type to keep
+     */
+    public void setMaxRecycledViews(int viewType, int max) {
+        mRecycledViewPool.setMaxRecycledViews(viewType, max);
+    }
+
+    /**
+     * Creates views of the given type ahead of time and puts them in the recycled view pool, so that the first layout only has to
+     * bind them instead of inflating them. The views are created one at a time while the UI thread is idle. Each is made by
+     * calling the adapter's getView with a null convert view for the first item of that type, and is bound again when it is used.
+     * Must be called on the UI thread after the adapter is set; it is cancelled when the adapter changes or the list is detached.
+     *
+     * @param viewType The view type, as returned by {@code Adapter#getItemViewType(int)}
+     * @param count The number of views to create, limited by the room left in the pool for that type
+     */
+    public void prewarm(int viewType, int count) {
+        prewarm(viewType, count, null, null);
+    }
+
+    /**
+     * Creates views of the given type ahead of time and puts them in the recycled view pool, like {@link #prewarm(int, int)}, but
+     * using a factory instead of the adapter. If a looper is given the factory is called on that looper's thread, which is only
+     * safe if the views it creates do not touch the UI thread while being created; the views are still added to the pool on the
+     * UI thread.
+     *
+     * @param viewType The view type, as returned by {@code Adapter#getItemViewType(int)}
+     * @param count The number of views to create, limited by the room left in the pool for that type
+     * @param factory Creates the views, or null to use the adapter
+     * @param looper The looper of a background thread to create the views on, or null to create them while the UI thread is idle.
+     * Ignored if factory is null.
+     */
+    public void prewarm(int viewType, int count, ViewFactory factory, Looper looper) {
+        if (count <= 0 || !mRecycledViewPool.isViewTypeValid(viewType)) {
+            return;
+        }
+
+        // The adapter does not change while the task runs, so the item the views are made for is only looked up once
+        final int position = factory == null ? findFirstPositionOfViewType(viewType) : INVALID_POSITION;
+        if (factory == null && position == INVALID_POSITION) {
+            return;
+        }
+
+        final PrewarmTask task;
+        if (factory != null && looper != null) {
+            if (mMainHandler == null) {
+                mMainHandler = new Handler(Looper.getMainLooper());
+            }
+
+            task = new PrewarmTask(viewType, count, factory, new Handler(looper), INVALID_POSITION);
+            task.mWorkerHandler.post(task);
+        } else {
+            task = new PrewarmTask(viewType, count, factory, null, position);
+            Looper.myQueue().addIdleHandler(task);
+        }
+
+        mPrewarmTasks.add(task);
+    }
+
+    /** Stops creating the views asked for by prewarm. Views already in the pool are kept. */
+    public void cancelPrewarm() {
+        for (int i = mPrewarmTasks.size() - 1; i >= 0; i--) {
+            mPrewarmTasks.get(i).cancel();
+        }
+
+        mPrewarmTasks.clear();
+    }
+
+    /** Gets the number of times a view created by prewarm was used by the adapter instead of inflating a new one */
+    public int getAvoidedInflationCount() {
+        return mAvoidedInflationCount;
+    }
+
+    //找到第一个指定类型的item用于预先创建视图,找不到返回INVALID_POSITION
+    private int findFirstPositionOfViewType(int viewType) {
+        if (mAdapter != null) {
+            final int count = mAdapter.getCount();
+
+            for (int position = 0; position < count; position++) {
+                if (mAdapter.getItemViewType(position) == viewType) {
+                    return position;
+                }
+            }
+        }
+
+        return INVALID_POSITION;
+    }
+
+    /**
+     * Puts a view created by prewarm into the recycled view pool.
+     *
+     * @return false if there is no room left in the pool for views of that type
+     */
+    private boolean addPrewarmedView(View view, int viewType) {
+        final LayoutParams params = getLayoutParams(view);
+        params.viewType = viewType;
+        params.prewarmed = true;
+        view.setLayoutParams(params);
+
+        return mRecycledViewPool.putRecycledView(viewType, view);
+    }
+
+    /**
+     * Creates the views for one call to prewarm. Without a worker handler it is an idle handler on the UI thread that creates one
+     * view each time the thread is idle. With one it runs on the worker thread, creating one view per message and posting each to
+     * the UI thread to be added to the pool.
+     */
+    private final class PrewarmTask implements MessageQueue.IdleHandler, Runnable {
+        private final int mViewType;
+        private final ViewFactory mFactory;
+        private final Handler mWorkerHandler;
+
+        // The adapter position whose getView creates the views when there is no factory
+        private final int mPosition;
+
+        // The number of views still to add to the pool, only used on the UI thread
+        private int mRemaining;
+
+        // The number of views still to create, only used on the worker thread
+        private int mRemainingToCreate;
+
+        private volatile boolean mCancelled;
+
+        PrewarmTask(int viewType, int count, ViewFactory factory, Handler workerHandler, int position) {
+            mViewType = viewType;
+            mPosition = position;
+            mRemaining = count;
+            mRemainingToCreate = count;
+            mFactory = factory;
+            mWorkerHandler = workerHandler;
+        }
+
+        @Override
+        public boolean queueIdle() {
+            if (mCancelled) {
+                return false;
+            }
+
+            final View view;
+            if (mFactory != null) {
+                view = mFactory.createView(HorizontalListView.this, mViewType);
+            } else if (mAdapter != null && mPosition < mAdapter.getCount() && mAdapter.getItemViewType(mPosition) == mViewType) {
+                view = mAdapter.getView(mPosition, null, HorizontalListView.this);
+            } else {
+                // The data changed and the item is gone, stop rather than scan the adapter again
+                view = null;
+            }
+
+            onViewCreated(view);
+
+            // Keep being called while there are views left to create
+            return !mCancelled;
+        }
+
+        @Override
+        public void run() {
+            if (mCancelled || mRemainingToCreate <= 0) {
+                return;
+            }
+
+            mRemainingToCreate--;
+            final View view = mFactory.createView(HorizontalListView.this, mViewType);
+
+            mMainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    onViewCreated(view);
+                }
+            });
+
+            if (mRemainingToCreate > 0) {
+                // Give other work on the looper a chance to run between views
+                mWorkerHandler.post(this);
+            }
+        }
+
+        /** Adds a created view to the pool, on the UI thread, and finishes once enough views have been added */
+        private void onViewCreated(View view) {
+            if (mCancelled) {
+                return;
+            }
+
+            mRemaining--;
+
+            if (view == null || !addPrewarmedView(view, mViewType) || mRemaining <= 0) {
+                // Nothing more can be added for this type
+                cancel();
+                mPrewarmTasks.remove(this);
+            }
+        }
+
+        void cancel() {
+            mCancelled = true;
+
+            if (mWorkerHandler != null) {
+                mWorkerHandler.removeCallbacks(this);
+            } else {
+                Looper.myQueue().removeIdleHandler(this);
+            }
+        }
+    }
+
+    /**
+     * Enables or disables prefetching, which is disabled by default. While the list scrolls, the time left in each frame before
+     * the next one is due is used to bind and measure the next {@value #PREFETCH_COLUMN_COUNT} items in the scroll direction, so
+     * the frame that brings one of them on screen does not have to. The adapter's getView is called for those items before they
+     * are shown, and they are dropped again if the list turns back.
+     */
+    public void setItemPrefetchEnabled(boolean enabled) {
+        mItemPrefetchEnabled = enabled;
+
+        if (!enabled) {
+            cancelPrefetch();
+            clearPrefetchedViews(true);
+        }
+    }
+
+    /** Returns true if items are prefetched while the list scrolls */
+    public boolean isItemPrefetchEnabled() {
+        return mItemPrefetchEnabled;
+    }
+
+    //安排在下一帧之后预取,API 16以上由Choreographer在帧开始时提供帧时间
+    private void schedulePrefetch() {
+        if (!mItemPrefetchEnabled || mIsPrefetchScheduled || mAdapter == null) {
+            return;
+        }
+
+        mIsPrefetchScheduled = true;
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            if (mPrefetchFrameCallback == null) {
+                mPrefetchFrameCallback = JellyBeanPlus.newPrefetchFrameCallback(this);
+            }
+
+            JellyBeanPlus.postFrameCallback(mPrefetchFrameCallback);
+        } else {
+            // Without Choreographer the frame is taken to start now, this is called while one is being produced
+            mPrefetchFrameTimeNanos = System.nanoTime();
+            post(mPrefetchRunnable);
+        }
+    }
+
+    //取消已经安排的预取
+    private void cancelPrefetch() {
+        mIsPrefetchScheduled = false;
+        removeCallbacks(mPrefetchRunnable);
+
+        if (mPrefetchFrameCallback != null) {
+            JellyBeanPlus.removeFrameCallback(mPrefetchFrameCallback);
+        }
+    }
+
+    /** Called by Choreographer when a frame starts, the prefetch runs once the frame has been laid out and drawn */
+    private void onPrefetchFrame(long frameTimeNanos) {
+        mPrefetchFrameTimeNanos = frameTimeNanos;
+        post(mPrefetchRunnable);
+    }
+
+    private final Runnable mPrefetchRunnable = new Runnable() {
+        @Override
+        public void run() {
+            prefetchItems();
+        }
+    };
+
+    /**
+     * Binds and measures the items just past the screen in the scroll direction, one at a time, for as long as the time left before
+     * the next frame is due allows. Whatever is left is tried again after the next frame.
+     */
+    private void prefetchItems() {
+        mIsPrefetchScheduled = false;
+
+        if (!mItemPrefetchEnabled || mAdapter == null || mDataChanged || mRestoreX != null || getChildCount() == 0 || isLayoutRequested()) {
+            return;
+        }
+
+        final int direction = getPrefetchDirection();
+        if (direction == 0) {
+            return;
+        }
+
+        final int firstColumn = direction > 0 ? mLayoutEngine.mRightPosition + 1 : mLayoutEngine.mLeftPosition - 1;
+        final int lastColumn = firstColumn + (PREFETCH_COLUMN_COUNT - 1) * direction;
+
+        // Views prefetched for the other direction, or for where the list was before a jump, will not be needed
+        dropStalePrefetchedViews(Math.min(firstColumn, lastColumn), Math.max(firstColumn, lastColumn));
+
+        final long deadlineNanos = mPrefetchFrameTimeNanos + mFrameIntervalNanos;
+        final int columnCount = getColumnCount();
+
+        for (int column = firstColumn; column != lastColumn + direction && column >= 0 && column < columnCount; column += direction) {
+            final int end = Math.min(getFirstPositionInColumn(column) + mRowCount, mAdapter.getCount());
+
+            for (int position = getFirstPositionInColumn(column); position < end; position++) {
+                if (mPrefetchedViews.get(position) != null) {
+                    continue;
+                }
+
+                final long start = System.nanoTime();
+                if (start + mPrefetchAverageNanos > deadlineNanos) {
+                    // Not enough time left in this frame
+                    schedulePrefetch();
+                    return;
+                }
+
+                mPrefetchedViews.put(position, prefetchView(position));
+
+                final long elapsed = System.nanoTime() - start;
+                mPrefetchAverageNanos = mPrefetchAverageNanos == 0 ? elapsed : (mPrefetchAverageNanos * 3 + elapsed) / 4;
+            }
+        }
+    }
+
+    /**
+     * Gets the direction the list is scrolling in, 1 towards the end and -1 towards the start, from the scroll position it is
+     * heading to, or the fling that is running. Returns 0 when the list is idle.
+     */
+    private int getPrefetchDirection() {
+        if (mCurrentScrollState == OnScrollStateChangedListener.ScrollState.SCROLL_STATE_IDLE) {
+            return 0;
+        }
+
+        if (mNextX != mCurrentX) {
+            return mNextX > mCurrentX ? 1 : -1;
+        }
+
+        if (!mFlingTracker.isFinished()) {
+            final int remaining = mFlingTracker.getFinalX() - mFlingTracker.getCurrX();
+            if (remaining != 0) {
+                return remaining > 0 ? 1 : -1;
+            }
+        }
+
+        return mLastScrollDirection;
+    }
+
+    //从adapter获取视图并绑定、测量,但不加入列表
+    private View prefetchView(int position) {
+        final View child = obtainView(position, getRecycledView(position));
+        final LayoutParams params = getLayoutParams(child);
+
+        if (params.prewarmed) {
+            params.prewarmed = false;
+            mAvoidedInflationCount++;
+        }
+
+        bindLayoutParams(params, position);
+        if (child.getLayoutParams() != params) {
+            child.setLayoutParams(params);
+        }
+
+        measureChild(child);
+        return child;
+    }
+
+    //取出为指定adapter索引预取的视图,没有则返回null
+    private View takePrefetchedView(int position) {
+        final View child = mPrefetchedViews.get(position);
+
+        if (child != null) {
+            mPrefetchedViews.remove(position);
+        }
+
+        return child;
+    }
+
+    //加入一个预取的视图,它已经按当前的高度测量过,除非高度之后改变了
+    private void addPrefetchedChild(View child, int viewPos) {
+        final LayoutParams params = getLayoutParams(child);
+        addViewInLayout(child, viewPos, params, true);
+
+        if (params.heightMeasureSpec != getChildHeightMeasureSpec(params)) {
+            measureChild(child);
+        }
+
+        if (mFlingLayersActive) {
+            startFlingLayer(child);
+        }
+    }
+
+    //回收不在firstColumn到lastColumn之间的预取视图
+    private void dropStalePrefetchedViews(int firstColumn, int lastColumn) {
+        for (int i = mPrefetchedViews.size() - 1; i >= 0; i--) {
+            final int column = getColumnForPosition(mPrefetchedViews.keyAt(i));
+
+            if (column < firstColumn || column > lastColumn) {
+                recycleChild(mPrefetchedViews.valueAt(i));
+                mPrefetchedViews.removeAt(i);
+            }
+        }
+    }
+
+    /**
+     * Forgets every prefetched view.
+     *
+     * @param recycle True to put the views in the recycled view pool, false to drop them
+     */
+    private void clearPrefetchedViews(boolean recycle) {
+        if (recycle) {
+            for (int i = 0; i < mPrefetchedViews.size(); i++) {
+                recycleChild(mPrefetchedViews.valueAt(i));
+            }
+        }
+
+        mPrefetchedViews.clear();
+    }
+
+    //从缓存中返回一个能被使用的回收视图,如果没有一个可以使用就返回null
+    private View getRecycledView(int adapterIndex) {
+        final View view = mRecycledViewPool.getRecycledView(mAdapter.getItemViewType(adapterIndex));
+
+        if (mPassMetrics != null) {
+            if (view != null) {
+                mPassMetrics.mScrapHitCount++;
+            } else {
+                mPassMetrics.mScrapMissCount++;
+            }
+        }
+
+        return view;
+    }
+
+    //从Adapter获取绑定了指定item的视图
+    private View obtainView(int adapterIndex, View convertView) {
+        final LayoutMetrics metrics = mPassMetrics;
+        if (metrics == null) {
+            return mAdapter.getView(adapterIndex, convertView, this);
+        }
+
+        final long start = System.nanoTime();
+        final View child = mAdapter.getView(adapterIndex, convertView, this);
+        metrics.mGetViewTimeNanos += System.nanoTime() - start;
+        metrics.mGetViewCount++;
+        return child;
+    }
+
+    /**
+     * Removes all the children, adding each of them to the recycled view cache under the view type it was bound with. The
+     * adapter is not consulted since its data may have already changed.
+     */
+    private void recycleAllChildren() {
+        final int childCount = getChildCount();
+
+        for (int i = 0; i < childCount; i++) {
+            recycleChild(getChildAt(i));
+        }
+
+        removeAllViewsInLayout();
+    }
+
+    //增加视图到回收缓存,视图必须由调用者移除
+    private void recycleChild(View child) {
+        // There is one queue of views for each different type of view.
+        // Just add the view to the pile of other views of the same type it was bound with, if that pile is full the view is dropped.
+        // The order they are added and removed does not matter.
+        final ViewGroup.LayoutParams params = child.getLayoutParams();
+
+        if (mImageLoader != null) {
+            // Anything still loading for this child is no longer wanted
+            mImageLoader.onViewRecycled(child);
+        }
+
+        if (params instanceof LayoutParams) {
+            // A layer has no use while the view waits to be bound again
+            stopFlingLayer(child, (LayoutParams) params);
+            mRecycledViewPool.putRecycledView(((LayoutParams) params).viewType, child);
+        }
+    }
+
+    /** Gets the item id the leftmost child was bound with, or INVALID_ROW_ID if there is no child */
+    private long getLeftmostChildItemId() {
+        final View child = getLeftmostChild();
+
+        if (child != null && child.getLayoutParams() instanceof LayoutParams) {
+            return ((LayoutParams) child.getLayoutParams()).itemId;
+        }
+
+        return INVALID_ROW_ID;
+    }
+
+    //增加一个子视图到ViewGroup并检测它是否已经渲染到了正确的尺寸
+    private void addAndMeasureChild(final View child, int viewPos, int adapterIndex) {
+        LayoutParams params = getLayoutParams(child);
+
+        if (params.prewarmed) {
+            // The adapter bound a view that was created ahead of time instead of inflating one
+            params.prewarmed = false;
+            mAvoidedInflationCount++;
+        }
+
+        bindLayoutParams(params, adapterIndex);
+
+        addViewInLayout(child, viewPos, params, true);
+        measureChild(child);
+
+        if (mFlingLayersActive) {
+            // Children that scroll on screen during a fling only translate as well
+            startFlingLayer(child);
+        }
+    }
+
+    /** Records what a child was bound with so it can be recycled, hit tested and found again without asking the adapter */
+    private void bindLayoutParams(LayoutParams params, int adapterIndex) {
+        params.position = adapterIndex;
+        params.viewType = mAdapter.getItemViewType(adapterIndex);
+        params.itemId = mAdapter.getItemId(adapterIndex);
+        updateDecorationOffsets(params);
+    }
+
+    //获取所有item装饰为指定item提供的左右间距
+    private void updateDecorationOffsets(LayoutParams params) {
+        params.decorationLeft = 0;
+        params.decorationRight = 0;
+
+        for (int i = 0; i < mItemDecorations.size(); i++) {
+            final Rect offsets = mDecorationOffsets;
+            offsets.setEmpty();
+            mItemDecorations.get(i).getItemOffsets(offsets, params.position, this);
+            params.decorationLeft += offsets.left;
+            params.decorationRight += offsets.right;
+        }
+    }
+
+    /** Gets the width a child takes up including the space its item decorations leave around it, but not the divider */
+    private int getDecoratedWidth(View child) {
+        final LayoutParams params = getLayoutParams(child);
+        return params.decorationLeft + child.getMeasuredWidth() + params.decorationRight;
+    }
+
+    /**
+     * Adds a decoration that can leave space around items and draw before and after the children. Decorations are applied in
+     * the order they are added.
+     */
+    public void addItemDecoration(ItemDecoration decoration) {
+        mItemDecorations.add(decoration);
+        invalidateItemDecorations();
+    }
+
+    /** Removes a decoration added with {@link #addItemDecoration(ItemDecoration)} */
+    public void removeItemDecoration(ItemDecoration decoration) {
+        if (mItemDecorations.remove(decoration)) {
+            invalidateItemDecorations();
+        }
+    }
+
+    /** Asks every decoration for its item offsets again, call when a decoration changes the space it leaves */
+    public void invalidateItemDecorations() {
+        for (int i = getChildCount() - 1; i >= 0; i--) {
+            updateDecorationOffsets(getLayoutParams(getChildAt(i)));
+        }
+
+        // The recorded widths include the decorations
+        clearItemWidths();
+
+        requestLayout();
+        invalidate();
+    }
+    
+    //检测提供的子类
+    private void measureChild(View child) {
+        final LayoutMetrics metrics = mPassMetrics;
+        if (metrics == null) {
+            measureChildInternal(child);
+        } else {
+            final long start = System.nanoTime();
+            measureChildInternal(child);
+            metrics.mMeasureTimeNanos += System.nanoTime() - start;
+        }
+
+        // With more than one row the widths are recorded per column as the columns are added
+        if (mRowCount == 1) {
+            mItemWidths.setWidth(getLayoutParams(child).position, getDecoratedWidth(child));
+        }
+    }
+
+    private void measureChildInternal(View child) {
+        LayoutParams childLayoutParams = getLayoutParams(child);
+        int childHeightSpec = getChildHeightMeasureSpec(childLayoutParams);
+
+        // A width worked out in the background saves the child from working out its own
+        final int exactWidth = mFixedItemWidth > 0 ? mFixedItemWidth : getProvidedItemWidth(childLayoutParams.position);
+
+        if (exactWidth == ItemWidthCache.UNKNOWN_WIDTH && mMeasureCache != null && mAdapter.hasStableIds()) {
+            measureChildUsingCache(child, childLayoutParams, childHeightSpec);
+            return;
+        }
 
         int childWidthSpec;
-        if (childLayoutParams.width > 0) {
+        if (exactWidth != ItemWidthCache.UNKNOWN_WIDTH) {
+            // A view rebound without requesting a layout still has the right size, so skip measuring it again
+            if (!child.isLayoutRequested() && child.getMeasuredWidth() == exactWidth && childLayoutParams.heightMeasureSpec == childHeightSpec) {
+                return;
+            }
+
+            childWidthSpec = MeasureSpec.makeMeasureSpec(exactWidth, MeasureSpec.EXACTLY);
+        } else if (childLayoutParams.width > 0) {
             childWidthSpec = MeasureSpec.makeMeasureSpec(childLayoutParams.width, MeasureSpec.EXACTLY);
         } else {
             childWidthSpec = MeasureSpec.makeMeasureSpec(0, MeasureSpec.UNSPECIFIED);
         }
 
-        child.measure(childWidthSpec, childHeightSpec);
+        child.measure(childWidthSpec, childHeightSpec);
+        childLayoutParams.heightMeasureSpec = childHeightSpec;
+        childLayoutParams.measuredWidth = child.getMeasuredWidth();
+    }
+    
+    //子视图的高度测量规格,有多行时每行平分高度
+    private int getChildHeightMeasureSpec(LayoutParams params) {
+        final int padding = getPaddingTop() + getPaddingBottom();
+        if (mRowCount == 1) {
+            return ViewGroup.getChildMeasureSpec(mHeightMeasureSpec, padding, params.height);
+        }
+
+        final int rowHeight = Math.max(0, MeasureSpec.getSize(mHeightMeasureSpec) - padding) / mRowCount;
+        return ViewGroup.getChildMeasureSpec(MeasureSpec.makeMeasureSpec(rowHeight, MeasureSpec.getMode(mHeightMeasureSpec)), 0, params.height);
+    }
+
+    /**
+     * Measures a child, using the size cached for its item when the item's content has not changed since. If the child itself
+     * was last measured for the same content it is not measured at all. Otherwise it is measured at exactly the cached size,
+     * which saves its views from working out their own sizes.
+     */
+    private void measureChildUsingCache(View child, LayoutParams params, int childHeightSpec) {
+        final long itemId = params.itemId;
+        final long contentVersion = getItemContentVersion(params.position);
+        final CachedMeasurement cached = mMeasureCache.get(itemId);
+
+        if (cached != null && cached.contentVersion == contentVersion && cached.heightMeasureSpec == childHeightSpec) {
+            if (!child.isLayoutRequested() && params.measuredItemId == itemId && params.measuredContentVersion == contentVersion
+                    && params.heightMeasureSpec == childHeightSpec && child.getMeasuredWidth() == cached.width
+                    && child.getMeasuredHeight() == cached.height) {
+                // Rebound to the content it already has the size for, and nothing in it asked to be measured again
+                return;
+            }
+
+            child.measure(MeasureSpec.makeMeasureSpec(cached.width, MeasureSpec.EXACTLY),
+                    MeasureSpec.makeMeasureSpec(cached.height, MeasureSpec.EXACTLY));
+        } else {
+            final int childWidthSpec = params.width > 0 ? MeasureSpec.makeMeasureSpec(params.width, MeasureSpec.EXACTLY)
+                    : MeasureSpec.makeMeasureSpec(0, MeasureSpec.UNSPECIFIED);
+            child.measure(childWidthSpec, childHeightSpec);
+            putCachedMeasurement(cached, itemId, contentVersion, childHeightSpec, child);
+        }
+
+        params.heightMeasureSpec = childHeightSpec;
+        params.measuredWidth = child.getMeasuredWidth();
+        params.measuredItemId = itemId;
+        params.measuredContentVersion = contentVersion;
+    }
+
+    //保存item的测量结果,已有的缓存项会被复用
+    private void putCachedMeasurement(CachedMeasurement cached, long itemId, long contentVersion, int heightMeasureSpec, View child) {
+        if (cached == null) {
+            // The least recently used item is dropped when the cache is full
+            cached = new CachedMeasurement();
+            mMeasureCache.put(itemId, cached);
+        }
+
+        cached.contentVersion = contentVersion;
+        cached.heightMeasureSpec = heightMeasureSpec;
+        cached.width = child.getMeasuredWidth();
+        cached.height = child.getMeasuredHeight();
+    }
+
+    //获取item的内容版本,adapter没有实现ItemContentVersionProvider时为0
+    private long getItemContentVersion(int position) {
+        return mAdapter instanceof ItemContentVersionProvider ? ((ItemContentVersionProvider) mAdapter).getItemContentVersion(position) : 0;
+    }
+
+    /**
+     * Enables a cache of the measured size of each item, keyed by its stable id and content version. When an item is bound again
+     * with the same content and height, the cached size is used instead of measuring the item's views from scratch. Only used
+     * when the adapter has stable ids and the items do not have a fixed width. It keeps the sizes of the
+     * {@value #MEASURE_CACHE_MAX_SIZE} items used most recently. The cache is cleared by notifyDataSetChanged unless
+     * the adapter implements {@link ItemContentVersionProvider}, and range change notifications drop the changed items.
+     */
+    public void setMeasureCacheEnabled(boolean enabled) {
+        if (enabled && mMeasureCache == null) {
+            mMeasureCache = new LruCache<Long, CachedMeasurement>(MEASURE_CACHE_MAX_SIZE);
+        } else if (!enabled) {
+            mMeasureCache = null;
+        }
+    }
+
+    /** Returns true if the measure cache is enabled */
+    public boolean isMeasureCacheEnabled() {
+        return mMeasureCache != null;
+    }
+
+    /**
+     * Sets a provider that works out item widths from the data alone, on a background thread, so that the scroll range, the
+     * maximum scroll position and jump targets are known before the items have been on screen. Items whose width has been
+     * provided are measured at exactly that width, the others are measured as usual; layout never waits for the provider. Any
+     * change to the adapter's data cancels the work still running, and on the next layout the provider is asked again for the
+     * positions whose width it has not provided yet. Widths that arrive during a frame are added together on the next frame.
+     *
+     * @param provider The provider, or null to measure every item
+     * @param executor The executor to call the provider on, or null to use a background thread shared by every list
+     */
+    public void setItemWidthProvider(ItemWidthProvider provider, Executor executor) {
+        clearItemWidths();
+        mItemWidthProvider = provider;
+        mItemWidthExecutor = executor;
+
+        // Measure the children again with or without the provided widths
+        mDataChanged = true;
+        requestLayout();
+    }
+
+    /** Gets the provider set with {@link #setItemWidthProvider(ItemWidthProvider, Executor)}, or null if there is none */
+    public ItemWidthProvider getItemWidthProvider() {
+        return mItemWidthProvider;
+    }
+
+    //如果还没有为当前数据计算宽度,从最左侧可见的item开始计算
+    private void startItemWidthProviderIfNeeded() {
+        if (mItemWidthProvider == null || mWidthProviderTask != null || mFixedItemWidth > 0 || mRowCount > 1 || mAdapter.getCount() == 0) {
+            return;
+        }
+
+        if (mMainHandler == null) {
+            mMainHandler = new Handler(Looper.getMainLooper());
+        }
+
+        // Only the positions whose width has not been provided are asked for again
+        final BitSet provided = mProvidedWidths.isEmpty() ? null : (BitSet) mProvidedWidths.clone();
+        mWidthProviderTask = new WidthProviderTask(mItemWidthProvider, mAdapter.getCount(), Math.max(0, mLayoutEngine.mLeftPosition),
+                provided);
+        getItemWidthExecutor().execute(mWidthProviderTask);
+    }
+
+    //停止为当前数据计算宽度,还没有加入宽度缓存的结果不再使用
+    private void cancelItemWidthProvider() {
+        if (mWidthProviderTask != null) {
+            mWidthProviderTask.mCancelled = true;
+            mWidthProviderTask = null;
+        }
+    }
+
+    private Executor getItemWidthExecutor() {
+        if (mItemWidthExecutor != null) {
+            return mItemWidthExecutor;
+        }
+
+        synchronized (HorizontalListView.class) {
+            if (sDefaultItemWidthExecutor == null) {
+                sDefaultItemWidthExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                    @Override
+                    public Thread newThread(final Runnable runnable) {
+                        return new Thread(new Runnable() {
+                            @Override
+                            public void run() {
+                                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                                runnable.run();
+                            }
+                        }, "HorizontalListView item widths");
+                    }
+                });
+            }
+
+            return sDefaultItemWidthExecutor;
+        }
+    }
+
+    //获取后台计算出的item宽度,不含item装饰,还没有计算出时返回ItemWidthCache.UNKNOWN_WIDTH
+    private int getProvidedItemWidth(int position) {
+        if (position < 0 || !mProvidedWidths.get(position)) {
+            return ItemWidthCache.UNKNOWN_WIDTH;
+        }
+
+        final int width = mItemWidths.getWidth(position);
+        return width != ItemWidthCache.UNKNOWN_WIDTH ? width - getDecorationWidth(position) : ItemWidthCache.UNKNOWN_WIDTH;
+    }
+
+    //在指定位置插入若干个没有提供宽度的item,之后的标记后移
+    private void insertProvidedWidths(int positionStart, int itemCount) {
+        if (positionStart < 0 || positionStart >= mProvidedWidths.length()) {
+            return;
+        }
+
+        final BitSet after = mProvidedWidths.get(positionStart, mProvidedWidths.length());
+        mProvidedWidths.clear(positionStart, mProvidedWidths.length());
+        for (int i = after.nextSetBit(0); i >= 0; i = after.nextSetBit(i + 1)) {
+            mProvidedWidths.set(positionStart + itemCount + i);
+        }
+    }
+
+    //删除指定位置的若干个item,之后的标记前移
+    private void removeProvidedWidths(int positionStart, int itemCount) {
+        if (positionStart < 0 || positionStart >= mProvidedWidths.length()) {
+            return;
+        }
+
+        final int end = Math.min(positionStart + itemCount, mProvidedWidths.length());
+        final BitSet after = mProvidedWidths.get(end, mProvidedWidths.length());
+        mProvidedWidths.clear(positionStart, mProvidedWidths.length());
+        for (int i = after.nextSetBit(0); i >= 0; i = after.nextSetBit(i + 1)) {
+            mProvidedWidths.set(positionStart + i);
+        }
+    }
+
+    //把一个item的标记从原位置移到新位置
+    private void moveProvidedWidth(int fromPosition, int toPosition) {
+        final boolean provided = fromPosition >= 0 && mProvidedWidths.get(fromPosition);
+        removeProvidedWidths(fromPosition, 1);
+        insertProvidedWidths(toPosition, 1);
+        if (provided && toPosition >= 0) {
+            mProvidedWidths.set(toPosition);
+        }
+    }
+
+    //获取所有item装饰为指定item提供的左右间距之和
+    private int getDecorationWidth(int position) {
+        int width = 0;
+
+        for (int i = 0; i < mItemDecorations.size(); i++) {
+            final Rect offsets = mDecorationOffsets;
+            offsets.setEmpty();
+            mItemDecorations.get(i).getItemOffsets(offsets, position, this);
+            width += offsets.left + offsets.right;
+        }
+
+        return width;
+    }
+
+    /**
+     * Adds the batches of provided widths that arrived since the last frame to the width cache, for the positions that have not
+     * been measured. The scroll range is only worked out again when a width after the screen was added, and the list is only
+     * redrawn when the scroll range changed.
+     */
+    private void onItemWidthsProvided(WidthProviderTask task, ArrayList<ProvidedWidths> batches) {
+        if (task != mWidthProviderTask || mItemWidths.getItemCount() != task.mItemCount) {
+            return;
+        }
+
+        final int rightPosition = mLayoutEngine.mRightPosition;
+        boolean addedAfterScreen = false;
+
+        for (int i = 0; i < batches.size(); i++) {
+            final ProvidedWidths batch = batches.get(i);
+
+            for (int j = 0; j < batch.widths.length; j++) {
+                final int position = batch.positionStart + j;
+                final int width = batch.widths[j];
+
+                if (width >= 0 && width <= MAX_PROVIDED_WIDTH && mItemWidths.getWidth(position) == ItemWidthCache.UNKNOWN_WIDTH) {
+                    mItemWidths.setWidth(position, width + getDecorationWidth(position));
+                    mProvidedWidths.set(position);
+                    addedAfterScreen |= position > rightPosition;
+                }
+            }
+        }
+
+        // Widths before the screen or on it do not move the maximum x position
+        if (addedAfterScreen) {
+            final int oldEstimatedMaxX = getEstimatedMaxX();
+            if (determineMaxX() && mCurrentX > mMaxX) {
+                requestLayout();
+            }
+
+            // The scroll bar and the fast-scroll thumb are drawn for the scroll range
+            if (getEstimatedMaxX() != oldEstimatedMaxX) {
+                invalidate();
+            }
+        }
+    }
+
+    /** The widths provided for a batch of positions */
+    private static final class ProvidedWidths {
+        final int positionStart;
+        final int[] widths;
+
+        ProvidedWidths(int positionStart, int[] widths) {
+            this.positionStart = positionStart;
+            this.widths = widths;
+        }
+    }
+
+    /**
+     * Asks an ItemWidthProvider for the width of every item on a background thread, a batch at a time, starting at the leftmost
+     * item on screen and wrapping around, and skipping the batches whose widths have all been provided before. The batches are
+     * queued and added to the width cache together on the next frame, so the UI thread is posted to at most once a frame.
+     */
+    private final class WidthProviderTask implements Runnable {
+        final int mItemCount;
+        private final ItemWidthProvider mProvider;
+        private final int mStartPosition;
+
+        // The positions provided before this task started, or null if there are none
+        private final BitSet mProvided;
+
+        // The batches not added to the width cache yet, and whether adding them has been scheduled, guarded by mPending
+        private final ArrayList<ProvidedWidths> mPending = new ArrayList<ProvidedWidths>();
+        private boolean mDrainScheduled;
+
+        volatile boolean mCancelled;
+
+        private final Runnable mScheduleDrain = new Runnable() {
+            @Override
+            public void run() {
+                // Posted from the UI thread so that the list is the one whose frame it is
+                ViewCompat.postOnAnimation(HorizontalListView.this, mDrain);
+            }
+        };
+
+        private final Runnable mDrain = new Runnable() {
+            @Override
+            public void run() {
+                final ArrayList<ProvidedWidths> batches;
+                synchronized (mPending) {
+                    batches = new ArrayList<ProvidedWidths>(mPending);
+                    mPending.clear();
+                    mDrainScheduled = false;
+                }
+
+                onItemWidthsProvided(WidthProviderTask.this, batches);
+            }
+        };
+
+        WidthProviderTask(ItemWidthProvider provider, int itemCount, int startPosition, BitSet provided) {
+            mProvider = provider;
+            mItemCount = itemCount;
+            mStartPosition = Math.min(startPosition, itemCount - 1);
+            mProvided = provided;
+        }
+
+        @Override
+        public void run() {
+            int done = 0;
+
+            while (done < mItemCount && !mCancelled) {
+                final int positionStart = (mStartPosition + done) % mItemCount;
+                final int count = Math.min(WIDTH_PROVIDER_BATCH_SIZE, Math.min(mItemCount - done, mItemCount - positionStart));
+                done += count;
+
+                if (mProvided != null && mProvided.nextClearBit(positionStart) >= positionStart + count) {
+                    continue;
+                }
+
+                final int[] widths = new int[count];
+                Arrays.fill(widths, ItemWidthCache.UNKNOWN_WIDTH);
+                mProvider.getItemWidths(positionStart, count, widths);
+
+                synchronized (mPending) {
+                    mPending.add(new ProvidedWidths(positionStart, widths));
+                    if (mDrainScheduled) {
+                        continue;
+                    }
+
+                    mDrainScheduled = true;
+                }
+
+                mMainHandler.post(mScheduleDrain);
+            }
+        }
     }
-    
+
+    //清空测量缓存
+    private void clearMeasureCache() {
+        if (mMeasureCache != null) {
+            mMeasureCache.evictAll();
+        }
+    }
+
+    /** The size an item was measured at, and what it was measured for */
+    private static final class CachedMeasurement {
+        long contentVersion;
+        int heightMeasureSpec;
+        int width;
+        int height;
+    }
+
     //得到子视图的布局参数
-    private ViewGroup.LayoutParams getLayoutParams(View child) {
+    private LayoutParams getLayoutParams(View child) {
         ViewGroup.LayoutParams layoutParams = child.getLayoutParams();
         if (layoutParams == null) {
-            // Since this is a horizontal list view default to matching the parents height, and wrapping the width
-            layoutParams = new ViewGroup.LayoutParams(ViewGroup.LayoutParams.WRAP_CONTENT, ViewGroup.LayoutParams.MATCH_PARENT);
+            return generateDefaultLayoutParams();
+        } else if (!(layoutParams instanceof LayoutParams)) {
+            // Only happens the first time a view from the adapter is added, recycled views keep their layout params
+            return new LayoutParams(layoutParams);
+        }
+
+        return (LayoutParams) layoutParams;
+    }
+
+    @Override
+    protected boolean checkLayoutParams(ViewGroup.LayoutParams params) {
+        return params instanceof LayoutParams;
+    }
+
+    @Override
+    protected ViewGroup.LayoutParams generateLayoutParams(ViewGroup.LayoutParams params) {
+        return new LayoutParams(params);
+    }
+
+    @Override
+    protected LayoutParams generateDefaultLayoutParams() {
+        // Since this is a horizontal list view default to matching the parents height, and wrapping the width
+        return new LayoutParams(ViewGroup.LayoutParams.WRAP_CONTENT, ViewGroup.LayoutParams.MATCH_PARENT);
+    }
+
+    @Override
+    public ViewGroup.LayoutParams generateLayoutParams(AttributeSet attrs) {
+        // Views inflated with this list as their parent get the right layout params straight away
+        return new LayoutParams(getContext(), attrs);
+    }
+
+    @Override
+    public int getPositionForView(View view) {
+        // Find the child of this list that contains the view
+        View child = view;
+        while (child.getParent() != this) {
+            if (!(child.getParent() instanceof View)) {
+                return INVALID_POSITION;
+            }
+
+            child = (View) child.getParent();
+        }
+
+        return getLayoutParams(child).position;
+    }
+
+    /** Layout information the HorizontalListView keeps for each of its children */
+    public static class LayoutParams extends ViewGroup.LayoutParams {
+        /** The view type the child was last bound with, as returned by {@code Adapter#getItemViewType(int)} */
+        public int viewType = ITEM_VIEW_TYPE_IGNORE;
+
+        /** The adapter position the child was last bound to */
+        public int position = INVALID_POSITION;
+
+        /** The item id the child was last bound with */
+        public long itemId = INVALID_ROW_ID;
+
+        /** The width the child had when it was last measured */
+        public int measuredWidth;
+
+        /** The height measure spec the child was last measured with */
+        int heightMeasureSpec;
+
+        /** The space the item decorations leave to the left and right of the child */
+        int decorationLeft;
+        int decorationRight;
+
+        /** The item id and content version the child was last measured for, when the measure cache is enabled */
+        long measuredItemId = INVALID_ROW_ID;
+        long measuredContentVersion;
+
+        /** True if the child was created by {@link HorizontalListView#prewarm(int, int)} and has not been used yet */
+        boolean prewarmed;
+
+        /** The bytes counted for the hardware layer the list turned on for the current fling, 0 if it did not turn one on */
+        int flingLayerBytes;
+
+        public LayoutParams(int width, int height) {
+            super(width, height);
+        }
+
+        public LayoutParams(Context context, AttributeSet attrs) {
+            super(context, attrs);
         }
 
-        return layoutParams;
+        public LayoutParams(ViewGroup.LayoutParams source) {
+            super(source);
+        }
     }
 
     //布局改变回调
@@ -439,30 +2258,103 @@ public class HorizontalListView extends AdapterView<ListAdapter> {
             return;
         }
 
+        beginLayoutPass();
+
         // Force the OS to redraw this view
         invalidate();
 
-        // If the data changed then reset everything and render from scratch at the same offset as last time
+        // Any count change has already been notified, this only makes sure the recorded widths line up with the adapter
+        if (mItemWidths.getItemCount() != getColumnCount()) {
+            clearItemWidths();
+        }
+
+        startItemWidthProviderIfNeeded();
+
+        // If the data changed then rebind the screen starting from the same first item, at the same offset as last time
         if (mDataChanged) {
-            int oldCurrentX = mCurrentX;
+            final int oldCurrentX = mCurrentX;
+            final int oldDisplayOffset = mLayoutEngine.mDisplayOffset;
+            final int anchorPosition = findAnchorPosition(getFirstVisiblePosition(), getLeftmostChildItemId());
+
             initView();
-            removeAllViewsInLayout();
-            mNextX = oldCurrentX;
+
+            if (anchorPosition >= 0) {
+                // The visible children are recycled and handed straight back to the adapter to be rebound
+                layoutFromAnchor(getColumnForPosition(anchorPosition), oldDisplayOffset, oldCurrentX);
+            } else {
+                recycleAllChildren();
+                mNextX = oldCurrentX;
+            }
+
             mDataChanged = false;
         }
 
-        // If restoring from a rotation
+        // If restoring from a rotation, or jumping to a position
         if (mRestoreX != null) {
-            mNextX = mRestoreX;
+            final int anchorPosition = findAnchorPosition(mPendingAnchorPosition, mPendingAnchorItemId);
+
+            if (anchorPosition >= 0) {
+                // Rebuild the screen starting at the anchor, only the views that end up visible are created
+                layoutFromAnchor(getColumnForPosition(anchorPosition), mPendingAnchorOffset, mRestoreX);
+            } else {
+                mNextX = mRestoreX;
+            }
+
             mRestoreX = null;
+            mPendingAnchorPosition = INVALID_POSITION;
+        }
+
+        // With fixed width items the maximum position only depends on the item count and the width of the list
+        if (mFixedItemWidth > 0) {
+            resetMaxX();
+        }
+
+        // Keep the next position within the scrollable range
+        clampNextX();
+
+        // Jump straight to the next position if it is too far to walk through the items in between
+        jumpToNextXIfFixedWidth(mCurrentX - mNextX);
+
+        // Calculate our delta from the last time the view was drawn
+        int dx = mCurrentX - mNextX;
+        removeNonVisibleChildren(dx);
+        fillList(dx);
+        positionChildren(dx);
+
+        // Since the view has now been drawn, update our current position
+        mCurrentX = mNextX;
+
+        // If the maximum scroll position is now known and the list is past it, then clamp against it
+        if (determineMaxX() && mCurrentX > mMaxX) {
+            if (mPassMetrics != null) {
+                mPassMetrics.mRecursiveLayoutCount++;
+            }
+
+            // Redo the layout pass since we now know the maximum scroll position
+            onLayout(changed, left, top, right, bottom);
+            endLayoutPass();
+            return;
         }
 
-        // If in a fling
-        if (mFlingTracker.computeScrollOffset()) {
-            // Compute the next position
-            mNextX = mFlingTracker.getCurrX();
+        // If the fling has finished
+        if (mFlingTracker.isFinished()) {
+            // If the fling just ended
+            if (mCurrentScrollState == OnScrollStateChangedListener.ScrollState.SCROLL_STATE_FLING) {
+                setCurrentScrollState(OnScrollStateChangedListener.ScrollState.SCROLL_STATE_IDLE);
+            }
+        } else {
+            // Still in a fling so make sure the next frame is scheduled
+            postFlingFrame();
         }
 
+        endLayoutPass();
+    }
+
+    /**
+     * Prevents mNextX from going past either end of the list. If a fling hits an end it is stopped and the edge glow absorbs
+     * its velocity.
+     */
+    private void clampNextX() {
         // Prevent scrolling past 0 so you can't scroll past the end of the list to the left
         if (mNextX < 0) {
             mNextX = 0;
@@ -486,34 +2378,138 @@ public class HorizontalListView extends AdapterView<ListAdapter> {
             mFlingTracker.forceFinished(true);
             setCurrentScrollState(OnScrollStateChangedListener.ScrollState.SCROLL_STATE_IDLE);
         }
+    }
+
+    /**
+     * Moves the list to mNextX without going through a layout pass. The existing children are offset in place, and views are
+     * only removed, added and positioned when a child edge actually crosses the edge of the viewport. If a layout pass is
+     * already pending, or the list must be rebuilt, the move is left to onLayout instead.
+     */
+    private void scrollChildrenToNextX() {
+        if (mAdapter == null || mDataChanged || mRestoreX != null || isLayoutRequested()) {
+            requestLayout();
+            return;
+        }
+
+        clampNextX();
 
         // Calculate our delta from the last time the view was drawn
-        int dx = mCurrentX - mNextX;
+        final int dx = mCurrentX - mNextX;
+        if (dx == 0) {
+            // Pinned at an edge the children stay put, but the edge glow still changes and has to be drawn
+            invalidate();
+            return;
+        }
+
+        // Get the items about to come on screen ready while the frame has time to spare
+        mLastScrollDirection = dx < 0 ? 1 : -1;
+        schedulePrefetch();
+
+        beginLayoutPass();
+
+        if (jumpToNextXIfFixedWidth(dx)) {
+            positionChildren(0);
+            invalidate();
+            endLayoutPass();
+            return;
+        }
+
+        final int oldLeftViewAdapterIndex = mLayoutEngine.mLeftPosition;
+        final int oldRightViewAdapterIndex = mLayoutEngine.mRightPosition;
+
         removeNonVisibleChildren(dx);
         fillList(dx);
-        positionChildren(dx);
 
-        // Since the view has now been drawn, update our current position
+        if (oldLeftViewAdapterIndex != mLayoutEngine.mLeftPosition || oldRightViewAdapterIndex != mLayoutEngine.mRightPosition) {
+            // Views entered or left the screen so everything needs to be positioned
+            positionChildren(dx);
+        } else {
+            // The same views are still on screen so just slide them
+            offsetChildren(dx);
+        }
+
         mCurrentX = mNextX;
 
-        // If we have scrolled enough to lay out all views, then determine the maximum scroll position now
-        if (determineMaxX()) {
-            // Redo the layout pass since we now know the maximum scroll position
-            onLayout(changed, left, top, right, bottom);
-            return;
+        // If the last item just came on screen then the maximum position is now known, so clamp against it
+        if (determineMaxX() && mNextX > mMaxX) {
+            scrollChildrenToNextX();
         }
 
-        // If the fling has finished
-        if (mFlingTracker.isFinished()) {
-            // If the fling just ended
-            if (mCurrentScrollState == OnScrollStateChangedListener.ScrollState.SCROLL_STATE_FLING) {
-                setCurrentScrollState(OnScrollStateChangedListener.ScrollState.SCROLL_STATE_IDLE);
+        invalidate();
+        endLayoutPass();
+    }
+
+    /** Starts counting a layout pass if metrics are enabled, passes started while one is running are part of it */
+    private void beginLayoutPass() {
+        if (mPassMetrics != null && mLayoutPassDepth++ == 0) {
+            mPassMetrics.reset();
+            mPassMetrics.mLayoutPassCount = 1;
+        }
+    }
+
+    /** Finishes counting a layout pass, reporting it once the outermost pass ends */
+    private void endLayoutPass() {
+        if (mPassMetrics != null && mLayoutPassDepth > 0 && --mLayoutPassDepth == 0) {
+            mTotalMetrics.add(mPassMetrics);
+            mOnLayoutMetricsListener.onLayoutPass(mPassMetrics, mTotalMetrics);
+        }
+    }
+
+    /**
+     * Sets a listener to be told what each layout pass cost. Metrics are only collected while a listener is set, and collecting
+     * them does not allocate.
+     *
+     * @param listener The listener, or null to stop collecting metrics
+     */
+    public void setOnLayoutMetricsListener(OnLayoutMetricsListener listener) {
+        mOnLayoutMetricsListener = listener;
+        mLayoutPassDepth = 0;
+
+        if (listener == null) {
+            mPassMetrics = null;
+        } else if (mPassMetrics == null) {
+            mPassMetrics = new LayoutMetrics();
+
+            if (mTotalMetrics == null) {
+                mTotalMetrics = new LayoutMetrics();
             }
+        }
+    }
+
+    /**
+     * Copies the totals of every layout pass counted since metrics were enabled or last reset.
+     *
+     * @param outMetrics Receives the totals
+     */
+    public void getLayoutMetrics(LayoutMetrics outMetrics) {
+        if (mTotalMetrics != null) {
+            outMetrics.set(mTotalMetrics);
         } else {
-            // Still in a fling so schedule the next frame
-            ViewCompat.postOnAnimation(this, mDelayedLayout);
+            outMetrics.reset();
+        }
+    }
+
+    /** Sets the totals returned by {@link #getLayoutMetrics(LayoutMetrics)} back to zero */
+    public void resetLayoutMetrics() {
+        if (mTotalMetrics != null) {
+            mTotalMetrics.reset();
+        }
+    }
+
+    /** Slides every child horizontally by dx without laying them out again */
+    private void offsetChildren(final int dx) {
+        mLayoutEngine.offset(dx);
+
+        for (int i = getChildCount() - 1; i >= 0; i--) {
+            getChildAt(i).offsetLeftAndRight(dx);
         }
     }
+
+    /** Schedules the next fling frame, replacing any frame that is already scheduled */
+    private void postFlingFrame() {
+        removeCallbacks(mFlingRunnable);
+        ViewCompat.postOnAnimation(this, mFlingRunnable);
+    }
     
     //得到左侧边缘强度
     @Override
@@ -537,12 +2533,15 @@ public class HorizontalListView extends AdapterView<ListAdapter> {
     protected float getRightFadingEdgeStrength() {
         int horizontalFadingEdgeLength = getHorizontalFadingEdgeLength();
 
+        // Until the maximum x position is known, its estimate is used
+        final int maxX = getEstimatedMaxX();
+
         // If completely at the edge then disable the fading edge
-        if (mCurrentX == mMaxX) {
+        if (mCurrentX >= maxX) {
             return 0;
-        } else if ((mMaxX - mCurrentX) < horizontalFadingEdgeLength) {
+        } else if ((maxX - mCurrentX) < horizontalFadingEdgeLength) {
             // We are very close to the edge, so enable the fading edge proportional to the distance from the ednge, and the width of the edge effect
-            return (float) (mMaxX - mCurrentX) / horizontalFadingEdgeLength;
+            return (float) (maxX - mCurrentX) / horizontalFadingEdgeLength;
         } else {
             // The distance from the maximum x position is more then the width of the fading edge so enable it fully.
             return 1;
@@ -562,18 +2561,99 @@ public class HorizontalListView extends AdapterView<ListAdapter> {
         }
     }
     
-    //用于计划请求布局通过runnable对象
-    private Runnable mDelayedLayout = new Runnable() {
+    //在每一个动画帧中推进fling,只偏移子视图而不请求布局
+    private Runnable mFlingRunnable = new Runnable() {
         @Override
         public void run() {
-            requestLayout();
+            if (mFlingTracker.computeScrollOffset()) {
+                // Compute the next position
+                mNextX = mFlingTracker.getCurrX() + mFlingTrackerOffset;
+                scrollChildrenToNextX();
+                correctSmoothScrollTarget();
+            }
+
+            if (mFlingTracker.isFinished()) {
+                // If the fling just ended
+                if (mCurrentScrollState == OnScrollStateChangedListener.ScrollState.SCROLL_STATE_FLING) {
+                    setCurrentScrollState(OnScrollStateChangedListener.ScrollState.SCROLL_STATE_IDLE);
+                }
+            } else {
+                // Still in a fling so schedule the next frame
+                ViewCompat.postOnAnimation(HorizontalListView.this, this);
+            }
         }
     };
 
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+
+        // Prefetching fits its work into what is left of each frame
+        final WindowManager windowManager = (WindowManager) getContext().getSystemService(Context.WINDOW_SERVICE);
+        final float refreshRate = windowManager != null ? windowManager.getDefaultDisplay().getRefreshRate() : 0;
+        mFrameIntervalNanos = (long) (1000000000 / (refreshRate >= MIN_REFRESH_RATE ? refreshRate : DEFAULT_REFRESH_RATE));
+
+        // Give up recycled views when the system is running low on memory
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.ICE_CREAM_SANDWICH && mTrimMemoryCallbacks == null) {
+            mTrimMemoryCallbacks = IceCreamSandwichPlus.registerTrimMemoryCallbacks(getContext(), this);
+        }
+
+        if (mImageLoader != null) {
+            mImageLoader.onListAttached();
+        }
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+
+        // Stop driving a fling that can no longer be seen
+        removeCallbacks(mFlingRunnable);
+        removeCallbacks(mCheckForLongPress);
+        removeCallbacks(mHideFastScrollThumb);
+        mFastScrollThumbShown = false;
+        mIsDraggingFastScrollThumb = false;
+        cancelPrewarm();
+        stopFlingLayers();
+        cancelPrefetch();
+        clearPrefetchedViews(true);
+
+        // Work out the widths again when shown again, the data may change in the meantime
+        cancelItemWidthProvider();
+
+        // The loader's thread is not needed until the list is shown again
+        if (mImageLoader != null) {
+            mImageLoader.onListDetached();
+        }
+
+        mNestedScrollHelper.stopNestedScroll();
+        mIsDisallowingParentInterceptTouchEvent = false;
+
+        if (mVelocityTracker != null) {
+            mVelocityTracker.recycle();
+            mVelocityTracker = null;
+        }
+
+        if (mTrimMemoryCallbacks != null) {
+            IceCreamSandwichPlus.unregisterTrimMemoryCallbacks(getContext(), mTrimMemoryCallbacks);
+            mTrimMemoryCallbacks = null;
+        }
+
+        // The recycled views are of no use until this list is shown again, unless other lists share them
+        if (!mIsRecycledViewPoolShared) {
+            mRecycledViewPool.clear();
+        }
+    }
+
     @Override
     protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
         super.onMeasure(widthMeasureSpec, heightMeasureSpec);
 
+        // The items may be a different width at a different height
+        if (heightMeasureSpec != mHeightMeasureSpec) {
+            clearItemWidths();
+        }
+
         // Cache off the measure spec
         mHeightMeasureSpec = heightMeasureSpec;
     };
@@ -588,147 +2668,243 @@ public class HorizontalListView extends AdapterView<ListAdapter> {
     
     //决定最大的X位置,这是一个最远用于可以滚动的屏幕,直到Adapter item已经布局到可能计算的地方
     private boolean determineMaxX() {
+        // With fixed width items the maximum x position has already been calculated
+        if (mFixedItemWidth > 0) {
+            return false;
+        }
+
+        if (getChildCount() == 0) {
+            return false;
+        }
+
+        final int oldMaxX = mMaxX;
+        final int rightPosition = mLayoutEngine.mRightPosition;
+
         // If the last view has been laid out, then we can determine the maximum x position
-        if (isLastItemInAdapter(mRightViewAdapterIndex)) {
-            View rightView = getRightmostChild();
+        if (isLastColumn(rightPosition)) {
+            mMaxX = mLayoutEngine.computeMaxX(mCurrentX, getRenderWidth());
+        } else if (rightPosition != mEstimatedMaxXRightPosition || mItemWidths.getModCount() != mEstimatedMaxXModCount) {
+            // Otherwise add up the recorded widths of the items after the screen, estimating the ones not measured yet. The
+            // result does not change while the list scrolls, only when items come on screen or widths change.
+            mEstimatedMaxXRightPosition = rightPosition;
+            mEstimatedMaxXModCount = mItemWidths.getModCount();
+
+            final int itemCount = getColumnCount();
+            final int widthAfterRightEdge = estimateRangeWidth(rightPosition + 1, itemCount);
+            mEstimatedMaxX = mLayoutEngine.computeMaxX(mCurrentX, getRenderWidth(), widthAfterRightEdge);
+
+            // Once every item after the screen has been measured the estimate is exact
+            if (mItemWidths.isRangeKnown(rightPosition + 1, itemCount)) {
+                mMaxX = mEstimatedMaxX;
+            }
+        }
 
-            if (rightView != null) {
-                int oldMaxX = mMaxX;
+        return mMaxX != oldMaxX;
+    }
 
-                // Determine the maximum x position
-                mMaxX = mCurrentX + (rightView.getRight() - getPaddingLeft()) - getRenderWidth();
+    /** Gets the maximum x position if it is known, otherwise an estimate of it, or Integer.MAX_VALUE if nothing is known */
+    private int getEstimatedMaxX() {
+        return mMaxX != Integer.MAX_VALUE ? mMaxX : mEstimatedMaxX;
+    }
 
-                // Handle the case where the views do not fill at least 1 screen
-                if (mMaxX < 0) {
-                    mMaxX = 0;
-                }
+    @Override
+    protected int computeHorizontalScrollRange() {
+        final int maxX = getEstimatedMaxX();
+        return maxX != Integer.MAX_VALUE ? maxX + getRenderWidth() : getRenderWidth();
+    }
 
-                if (mMaxX != oldMaxX) {
-                    return true;
-                }
+    @Override
+    protected int computeHorizontalScrollOffset() {
+        return mCurrentX;
+    }
+
+    @Override
+    protected int computeHorizontalScrollExtent() {
+        return getRenderWidth();
+    }
+
+    /**
+     * Finds the adapter position to use as the anchor when rebuilding the list. If the adapter has stable ids and the item
+     * is no longer at the saved position, then nearby positions are searched for it.
+     *
+     * @param position The saved adapter position of the anchor
+     * @param itemId The saved item id of the anchor
+     * @return The anchor position, or INVALID_POSITION if there is no anchor or the adapter is empty
+     */
+    private int findAnchorPosition(int position, long itemId) {
+        final int count = mAdapter.getCount();
+        if (position < 0 || count == 0) {
+            return INVALID_POSITION;
+        }
+
+        position = Math.min(position, count - 1);
+
+        if (itemId == INVALID_ROW_ID || !mAdapter.hasStableIds() || mAdapter.getItemId(position) == itemId) {
+            return position;
+        }
+
+        // The data moved, so look for the item on either side of where it used to be
+        for (int distance = 1; distance <= ANCHOR_SEARCH_DISTANCE; distance++) {
+            if (position - distance >= 0 && mAdapter.getItemId(position - distance) == itemId) {
+                return position - distance;
+            }
+
+            if (position + distance < count && mAdapter.getItemId(position + distance) == itemId) {
+                return position + distance;
             }
         }
 
-        return false;
+        // The item is gone so stay at the same position
+        return position;
+    }
+
+    /**
+     * Throws away the current children and fills the screen starting with the anchor item placed at the given offset. Only
+     * the items that are visible are requested from the adapter, no matter how far into the list the anchor is.
+     *
+     * @param position The adapter position of the anchor item
+     * @param offset The offset of the anchor item's left edge from the left edge of the list
+     * @param x The scroll position the anchor corresponds to
+     */
+    private void layoutFromAnchor(int position, int offset, int x) {
+        recycleAllChildren();
+        mLayoutEngine.startAt(position, offset);
+
+        // The first item is always at 0, otherwise the scroll position can not put the anchor before the start of the list
+        mNextX = position == 0 ? -offset : Math.max(x, -offset);
+        mCurrentX = mNextX;
+
+        // The first view added will be the anchor, which has no divider to the left of its offset
+        mLayoutEngine.fillListRight(position == 0 ? offset : offset - mDividerWidth, 0);
+        mLayoutEngine.fillListLeft(offset, 0);
+
+        // Lay the new children out straight away, so anything that reads their edges in the same pass sees where they are
+        positionChildren(0);
     }
 
     /** Adds children views to the left and right of the current views until the screen is full */
     //增加子视图到当前视图的左右,直到屏幕填满
     private void fillList(final int dx) {
-        // Get the rightmost child and determine its right edge
-        int edge = 0;
-        View child = getRightmostChild();
-        if (child != null) {
-            edge = child.getRight();
-        }
+        mLayoutEngine.fillList(dx);
+    }
 
-        // Add new children views to the right, until past the edge of the screen
-        fillListRight(edge, dx);
+    //移除不可见的子视图
+    private void removeNonVisibleChildren(final int dx) {
+        mLayoutEngine.removeNonVisibleChildren(dx);
+    }
 
-        // Get the leftmost child and determine its left edge
-        edge = 0;
-        child = getLeftmostChild();
-        if (child != null) {
-            edge = child.getLeft();
+    private void countRemovedChild() {
+        if (mPassMetrics != null) {
+            mPassMetrics.mRemovedChildCount++;
         }
-
-        // Add new children views to the left, until past the edge of the screen
-        fillListLeft(edge, dx);
     }
 
-    //移除不可见的子视图
-    private void removeNonVisibleChildren(final int dx) {
-        View child = getLeftmostChild();
+    /** Loops through each child and positions them onto the screen */
+    private void positionChildren(final int dx) {
+        final LayoutMetrics metrics = mPassMetrics;
+        if (metrics == null) {
+            mLayoutEngine.positionChildren(dx);
+            return;
+        }
 
-        // Loop removing the leftmost child, until that child is on the screen
-        while (child != null && child.getRight() + dx <= 0) {
-            // The child is being completely removed so remove its width from the display offset and its divider if it has one.
-            // To remove add the size of the child and its divider (if it has one) to the offset.
-            // You need to add since its being removed from the left side, i.e. shifting the offset to the right.
-            mDisplayOffset += isLastItemInAdapter(mLeftViewAdapterIndex) ? child.getMeasuredWidth() : mDividerWidth + child.getMeasuredWidth();
+        final long start = System.nanoTime();
+        mLayoutEngine.positionChildren(dx);
+        metrics.mPositionTimeNanos += System.nanoTime() - start;
+    }
 
-            // Add the removed view to the cache
-            recycleView(mLeftViewAdapterIndex, child);
+    /** Carries out what the layout engine decides with real views */
+    private final class LayoutHost implements HorizontalLayoutEngine.Host {
+        @Override
+        public int getItemCount() {
+            return getColumnCount();
+        }
 
-            // Actually remove the view
-            removeViewInLayout(child);
+        @Override
+        public int getViewportWidth() {
+            return getWidth();
+        }
 
-            // Keep track of the adapter index of the left most child
-            mLeftViewAdapterIndex++;
+        @Override
+        public int getStartPadding() {
+            return getPaddingLeft();
+        }
 
-            // Get the new leftmost child
-            child = getLeftmostChild();
+        @Override
+        public int getChildCount() {
+            return getOnScreenColumnCount();
         }
 
-        child = getRightmostChild();
-
-        // Loop removing the rightmost child, until that child is on the screen
-        while (child != null && child.getLeft() + dx >= getWidth()) {
-            recycleView(mRightViewAdapterIndex, child);
-            removeViewInLayout(child);
-            mRightViewAdapterIndex--;
-            child = getRightmostChild();
+        @Override
+        public int getChildWidth(int index) {
+            return getColumnWidth(index);
         }
-    }
-    
-    private void fillListRight(int rightEdge, final int dx) {
-        // Loop adding views to the right until the screen is filled
-        while (rightEdge + dx + mDividerWidth < getWidth() && mRightViewAdapterIndex + 1 < mAdapter.getCount()) {
-            mRightViewAdapterIndex++;
 
-            // If mLeftViewAdapterIndex < 0 then this is the first time a view is being added, and left == right
-            if (mLeftViewAdapterIndex < 0) {
-                mLeftViewAdapterIndex = mRightViewAdapterIndex;
+        @Override
+        public int addChild(int column, boolean atStart) {
+            final int firstPosition = getFirstPositionInColumn(column);
+            final int end = Math.min(firstPosition + mRowCount, mAdapter.getCount());
+
+            int width = 0;
+            for (int position = firstPosition; position < end; position++) {
+                // A column added at the start goes in front of the old first child, keeping its own order
+                final int viewPos = atStart ? INSERT_AT_START_OF_LIST + position - firstPosition : INSERT_AT_END_OF_LIST;
+
+                // Use the view prefetched for this item if there is one, it is already bound and measured
+                View child = takePrefetchedView(position);
+                if (child != null) {
+                    addPrefetchedChild(child, viewPos);
+                } else {
+                    // Get the view from the adapter, utilizing a cached view if one is available
+                    child = obtainView(position, getRecycledView(position));
+                    addAndMeasureChild(child, viewPos, position);
+                }
+
+                width = Math.max(width, getDecoratedWidth(child));
             }
 
-            // Get the view from the adapter, utilizing a cached view if one is available
-            View child = mAdapter.getView(mRightViewAdapterIndex, getRecycledView(mRightViewAdapterIndex), this);
-            addAndMeasureChild(child, INSERT_AT_END_OF_LIST);
+            if (mRowCount > 1) {
+                mItemWidths.setWidth(column, width);
+            }
 
-            // If first view, then no divider to the left of it, otherwise add the space for the divider width
-            rightEdge += (mRightViewAdapterIndex == 0 ? 0 : mDividerWidth) + child.getMeasuredWidth();
+            if (!atStart) {
+                // Check if we are running low on data so we can tell listeners to go get more
+                determineIfLowOnData();
+            }
 
-            // Check if we are running low on data so we can tell listeners to go get more
-            determineIfLowOnData();
+            return width;
         }
-    }
 
-    private void fillListLeft(int leftEdge, final int dx) {
-        // Loop adding views to the left until the screen is filled
-        while (leftEdge + dx - mDividerWidth > 0 && mLeftViewAdapterIndex >= 1) {
-            mLeftViewAdapterIndex--;
-            View child = mAdapter.getView(mLeftViewAdapterIndex, getRecycledView(mLeftViewAdapterIndex), this);
-            addAndMeasureChild(child, INSERT_AT_START_OF_LIST);
-
-            // If first view, then no divider to the left of it
-            leftEdge -= mLeftViewAdapterIndex == 0 ? child.getMeasuredWidth() : mDividerWidth + child.getMeasuredWidth();
+        @Override
+        public void removeChild(boolean atStart) {
+            // Only the last column of the adapter can be partly filled
+            final int childCount = HorizontalListView.this.getChildCount();
+            final int start = atStart ? 0 : (getOnScreenColumnCount() - 1) * mRowCount;
+            final int end = atStart ? Math.min(mRowCount, childCount) : childCount;
 
-            // If on a clean edge then just remove the child, otherwise remove the divider as well
-            mDisplayOffset -= leftEdge + dx == 0 ? child.getMeasuredWidth() : mDividerWidth + child.getMeasuredWidth();
-        }
-    }
+            for (int i = end - 1; i >= start; i--) {
+                final View child = getChildAt(i);
 
-    /** Loops through each child and positions them onto the screen */
-    private void positionChildren(final int dx) {
-        int childCount = getChildCount();
+                // Add the removed view to the cache
+                recycleChild(child);
 
-        if (childCount > 0) {
-            mDisplayOffset += dx;
-            int leftOffset = mDisplayOffset;
+                // Actually remove the view
+                removeViewInLayout(child);
+                countRemovedChild();
+            }
+        }
 
-            // Loop each child view
-            for (int i = 0; i < childCount; i++) {
-                View child = getChildAt(i);
-                int left = leftOffset + getPaddingLeft();
-                int top = getPaddingTop();
-                int right = left + child.getMeasuredWidth();
-                int bottom = top + child.getMeasuredHeight();
+        @Override
+        public void layoutChild(int index, int left, int width) {
+            final int start = index * mRowCount;
+            final int end = Math.min(start + mRowCount, HorizontalListView.this.getChildCount());
 
-                // Layout the child
-                child.layout(left, top, right, bottom);
+            for (int i = start; i < end; i++) {
+                final View child = getChildAt(i);
+                final int top = getRowTop(i - start);
 
-                // Increment our offset by added child's size and divider width
-                leftOffset += child.getMeasuredWidth() + mDividerWidth;
+                // Layout the child inside the space left for it by the item decorations
+                final int childLeft = left + getLayoutParams(child).decorationLeft;
+                child.layout(childLeft, top, childLeft + child.getMeasuredWidth(), top + child.getMeasuredHeight());
             }
         }
     }
@@ -745,30 +2921,47 @@ public class HorizontalListView extends AdapterView<ListAdapter> {
 
     //得到一个包含在当前视图里面的子视图,并获取该子视图的索引
     private View getChild(int adapterIndex) {
-        if (adapterIndex >= mLeftViewAdapterIndex && adapterIndex <= mRightViewAdapterIndex) {
-            return getChildAt(adapterIndex - mLeftViewAdapterIndex);
+        if (getChildCount() > 0 && adapterIndex >= getFirstVisiblePosition() && adapterIndex <= getLastVisiblePosition()) {
+            return getChildAt(adapterIndex - getFirstVisiblePosition());
         }
 
         return null;
     }
 
-    //返回指定坐标子视图的索引
+    //返回指定坐标子视图的索引,子视图从左到右排列,所以使用二分查找
     private int getChildIndex(final int x, final int y) {
-        int childCount = getChildCount();
+        int low = 0;
+        int high = getOnScreenColumnCount() - 1;
+
+        // Find the last column whose first child starts at or before x
+        int column = -1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            if (getChildAt(mid * mRowCount).getLeft() <= x) {
+                column = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
 
-        for (int index = 0; index < childCount; index++) {
-            getChildAt(index).getHitRect(mRect);
-            if (mRect.contains(x, y)) {
-                return index;
+        if (column >= 0) {
+            // Then the child in that column under the point
+            final int end = Math.min((column + 1) * mRowCount, getChildCount());
+            for (int index = column * mRowCount; index < end; index++) {
+                final View child = getChildAt(index);
+                if (x >= child.getLeft() && x < child.getRight() && y >= child.getTop() && y < child.getBottom()) {
+                    return index;
+                }
             }
         }
 
         return -1;
     }
     
-    //决定是否当前索引是最后一个索引
-    private boolean isLastItemInAdapter(int index) {
-        return index == mAdapter.getCount() - 1;
+    //决定是否当前列是最后一列,只有一行时即最后一个item
+    private boolean isLastColumn(int column) {
+        return column == getColumnCount() - 1;
     }
     
     //获取将被渲染的视图高度(px)
@@ -783,20 +2976,255 @@ public class HorizontalListView extends AdapterView<ListAdapter> {
     
     //滚动到提供的offset值
     public void scrollTo(int x) {
+        mSmoothScrollTargetPosition = INVALID_POSITION;
+        mFlingTrackerOffset = 0;
         mFlingTracker.startScroll(mNextX, 0, x - mNextX, 0);
         setCurrentScrollState(OnScrollStateChangedListener.ScrollState.SCROLL_STATE_FLING);
-        requestLayout();
+        postFlingFrame();
+    }
+
+    /**
+     * Jumps to the given adapter position without animating. Only the items that end up on the screen are bound, no matter how
+     * far away the position is.
+     *
+     * @param position The adapter position to show
+     * @param offset The distance in px from the left edge of the list to the left edge of the item
+     */
+    public void scrollToPosition(int position, int offset) {
+        if (mAdapter == null || mAdapter.getCount() == 0) {
+            return;
+        }
+
+        position = Math.max(0, Math.min(position, mAdapter.getCount() - 1));
+
+        mSmoothScrollTargetPosition = INVALID_POSITION;
+        mFlingTracker.forceFinished(true);
+        setCurrentScrollState(OnScrollStateChangedListener.ScrollState.SCROLL_STATE_IDLE);
+
+        jumpToPosition(getColumnForPosition(position), offset);
+    }
+
+    /** Lays out the list with the given column at the given offset from its left edge, binding only the items that end up on screen */
+    private void jumpToPosition(int position, int offset) {
+        final int x = estimateScrollX(position) - offset;
+
+        if (mDataChanged || mRestoreX != null || isLayoutRequested() || getChildCount() == 0) {
+            // Let the next layout pass start from the position
+            mPendingAnchorPosition = getFirstPositionInColumn(position);
+            mPendingAnchorItemId = INVALID_ROW_ID;
+            mPendingAnchorOffset = offset;
+            mRestoreX = x;
+            requestLayout();
+        } else {
+            layoutFromAnchor(position, offset, x);
+            positionChildren(0);
+
+            // The scroll position is only an estimate, so let the maximum be determined again relative to it
+            resetMaxX();
+            if (determineMaxX() || mCurrentX > mMaxX) {
+                requestLayout();
+            }
+        }
+
+        invalidate();
+    }
+
+    /**
+     * Smoothly scrolls to the given adapter position. The animation covers at most {@value #SMOOTH_SCROLL_MAX_SCREENS} screens;
+     * if the position is further away than that, the list first jumps to that distance from it. So only about that many
+     * screens of items are bound, however far away the position is.
+     *
+     * @param position The adapter position to scroll to the left edge of the list
+     */
+    public void smoothScrollToPosition(int position) {
+        if (mAdapter == null || mAdapter.getCount() == 0 || getChildCount() == 0) {
+            scrollToPosition(position, 0);
+            return;
+        }
+
+        // Scroll by columns, which are single items when there is one row
+        position = getColumnForPosition(Math.max(0, Math.min(position, mAdapter.getCount() - 1)));
+
+        // Jump to within the maximum animated distance of the position
+        final int maxAnimatedItems = Math.max(1, getRenderWidth() * SMOOTH_SCROLL_MAX_SCREENS / Math.max(1, estimateItemWidth()));
+        if (position - mLayoutEngine.mLeftPosition > maxAnimatedItems) {
+            scrollToPosition(getFirstPositionInColumn(position - maxAnimatedItems), 0);
+        } else if (mLayoutEngine.mLeftPosition - position > maxAnimatedItems) {
+            scrollToPosition(getFirstPositionInColumn(position + maxAnimatedItems), 0);
+        }
+
+        scrollTo(Math.max(0, Math.min(estimateScrollX(position), mMaxX)));
+
+        // Refine where the scroll ends once the item is on screen and its real position is known
+        mSmoothScrollTargetPosition = position;
+        mSmoothScrollTargetAlignment = SnapMode.START;
+    }
+
+    /**
+     * Sets how the list comes to rest after a fling. Unless the mode is {@link SnapMode#NONE}, the item to rest on is chosen when
+     * the fling starts, and the fling is adjusted once so that it ends with that item aligned, rather than being corrected by a
+     * second animation after it stops.
+     */
+    public void setSnapMode(SnapMode snapMode) {
+        mSnapMode = snapMode != null ? snapMode : SnapMode.NONE;
+    }
+
+    /** Gets how the list comes to rest after a fling */
+    public SnapMode getSnapMode() {
+        return mSnapMode;
+    }
+
+    /**
+     * Starts scrolling to the item nearest to the given position, for when a drag ends without a fling.
+     *
+     * @param finalX Where the list would rest without snapping
+     * @param duration The duration of the scroll in ms
+     */
+    private void startSnapScroll(int finalX, int duration) {
+        final int position = getSnapPosition(finalX, 0);
+        final SnapMode alignment = getSnapAlignment();
+
+        mFlingTrackerOffset = 0;
+        mFlingTracker.startScroll(mNextX, 0, getAlignedScrollX(position, alignment) - mNextX, 0, duration);
+        setCurrentScrollState(OnScrollStateChangedListener.ScrollState.SCROLL_STATE_FLING);
+        postFlingFrame();
+
+        // Refine where the scroll ends once the item is on screen and its real size is known
+        mSmoothScrollTargetPosition = position;
+        mSmoothScrollTargetAlignment = alignment;
+    }
+
+    /** Gets the alignment of the item a scroll snaps to, a page starts at the item at the left edge */
+    private SnapMode getSnapAlignment() {
+        return mSnapMode == SnapMode.PAGE ? SnapMode.START : mSnapMode;
+    }
+
+    /**
+     * Gets the item that a scroll ending at the given position should come to rest on.
+     *
+     * @param finalX Where the scroll would end without snapping
+     * @param direction The direction of the fling, negative to the left, positive to the right, or 0 for no fling
+     */
+    private int getSnapPosition(int finalX, int direction) {
+        final int itemWidth = Math.max(1, estimateItemWidth());
+        final int renderWidth = getRenderWidth();
+
+        // The scroll position of the left edge of the leftmost child, every other position is measured from it
+        final int leftmostX = mCurrentX + mLayoutEngine.mDisplayOffset;
+
+        int position;
+
+        switch (mSnapMode) {
+            case CENTER:
+                position = mLayoutEngine.mLeftPosition + Math.round((float) (finalX + renderWidth / 2 - leftmostX) / itemWidth - 0.5f);
+                break;
+
+            case END:
+                position = mLayoutEngine.mLeftPosition + Math.round((float) (finalX + renderWidth - leftmostX) / itemWidth) - 1;
+                break;
+
+            case PAGE:
+                // Move one page of items from the item nearest the left edge, in the direction of the fling
+                position = mLayoutEngine.mLeftPosition + Math.round((float) (mCurrentX - leftmostX) / itemWidth);
+                position += Integer.signum(direction) * Math.max(1, renderWidth / itemWidth);
+                break;
+
+            default:
+                position = mLayoutEngine.mLeftPosition + Math.round((float) (finalX - leftmostX) / itemWidth);
+                break;
+        }
+
+        return Math.max(0, Math.min(position, getColumnCount() - 1));
+    }
+
+    /** Gets the scroll position, within the scrollable range, that shows the given column with the given alignment */
+    private int getAlignedScrollX(int position, SnapMode alignment) {
+        final View child = getColumnChild(position);
+        final int width = child != null ? getColumnMeasuredWidth(position - mLayoutEngine.mLeftPosition) : estimateItemWidth() - mDividerWidth;
+        int x = estimateScrollX(position);
+
+        if (alignment == SnapMode.CENTER) {
+            x -= (getRenderWidth() - width) / 2;
+        } else if (alignment == SnapMode.END) {
+            x += width - getRenderWidth();
+        }
+
+        return Math.max(0, Math.min(x, mMaxX));
+    }
+
+    /**
+     * Estimates the scroll position that puts the left edge of the given column at the left edge of the list. With one row each
+     * column is a single item.
+     */
+    private int estimateScrollX(int position) {
+        final View child = getColumnChild(position);
+        if (child != null) {
+            return mCurrentX + child.getLeft() - getPaddingLeft();
+        }
+
+        if (mFixedItemWidth > 0) {
+            return position * getFixedItemStride();
+        }
+
+        if (getChildCount() == 0) {
+            return (int) getItemOffset(position);
+        }
+
+        // Measure from the leftmost item, whose position is known
+        return mCurrentX + mLayoutEngine.mDisplayOffset + (int) (getItemOffset(position) - getItemOffset(mLayoutEngine.mLeftPosition));
+    }
+
+    /**
+     * Gets the offset of an item's left edge from the first item's, adding up the recorded widths and estimating those not
+     * measured yet, in O(log n)
+     */
+    private long getItemOffset(int position) {
+        return mItemWidths.getOffset(position, Math.max(0, estimateItemWidth() - mDividerWidth), mDividerWidth);
+    }
+
+    /** Estimates which item is at the left edge of the list when it is scrolled to x, the inverse of estimateScrollX */
+    private int estimatePositionForScrollX(int x) {
+        final int itemWidth = estimateItemWidth();
+        if (itemWidth <= 0 || mAdapter == null || mAdapter.getCount() == 0) {
+            return INVALID_POSITION;
+        }
+
+        final int position;
+        if (mFixedItemWidth > 0) {
+            position = x / itemWidth;
+        } else {
+            // Measure from the leftmost item, whose position is known
+            final long leftmostOffset = getChildCount() > 0 ? mCurrentX + mLayoutEngine.mDisplayOffset - getItemOffset(mLayoutEngine.mLeftPosition) : 0;
+            position = mItemWidths.getPositionForOffset(x - leftmostOffset, itemWidth - mDividerWidth, mDividerWidth);
+        }
+
+        return Math.max(0, Math.min(position, getColumnCount() - 1));
+    }
+
+    /** Once the item a smooth scroll is heading for is on screen, moves the end of the scroll to exactly where the item is */
+    private void correctSmoothScrollTarget() {
+        if (mSmoothScrollTargetPosition == INVALID_POSITION || mFlingTracker.isFinished()) {
+            return;
+        }
+
+        if (getColumnChild(mSmoothScrollTargetPosition) != null) {
+            final int targetX = getAlignedScrollX(mSmoothScrollTargetPosition, mSmoothScrollTargetAlignment);
+            mFlingTracker.setFinalX(targetX - mFlingTrackerOffset);
+            mSmoothScrollTargetPosition = INVALID_POSITION;
+        }
     }
     
     //获取第一个可见的位置
     @Override
     public int getFirstVisiblePosition() {
-        return mLeftViewAdapterIndex;
+        final int column = mLayoutEngine.mLeftPosition;
+        return column < 0 ? column : getFirstPositionInColumn(column);
     }
 
     @Override
     public int getLastVisiblePosition() {
-        return mRightViewAdapterIndex;
+        final int column = mLayoutEngine.mRightPosition;
+        return column < 0 ? column : Math.min(getFirstPositionInColumn(column) + mRowCount, mAdapter.getCount()) - 1;
     }
 
     //绘画超出部分的光晕效果
@@ -836,43 +3264,63 @@ public class HorizontalListView extends AdapterView<ListAdapter> {
     /** Draws the dividers that go in between the horizontal list view items */
     private void drawDividers(Canvas canvas) {
         final int count = getChildCount();
+        if (count == 0 || mDividerWidth <= 0 || (mDivider == null && mDividerPaint == null)) {
+            return;
+        }
+
+        // Clip once to the area inside the padding, instead of clipping each divider
+        final int restoreCount = canvas.save();
+        canvas.clipRect(getPaddingLeft(), getPaddingTop(), getWidth() - getPaddingRight(), getPaddingTop() + getRenderHeight());
 
         // Only modify the left and right in the loop, we set the top and bottom here since they are always the same
         final Rect bounds = mRect;
-        mRect.top = getPaddingTop();
-        mRect.bottom = mRect.top + getRenderHeight();
+        bounds.top = getPaddingTop();
+        bounds.bottom = bounds.top + getRenderHeight();
+
+        // Don't draw a divider to the right of the last column in the adapter
+        final int columnCount = getOnScreenColumnCount();
+        final int dividerCount = isLastColumn(mLayoutEngine.mRightPosition) ? columnCount - 1 : columnCount;
+        if (mDividerPaint != null && mDividerLines.length < dividerCount * 4) {
+            mDividerLines = new float[dividerCount * 4];
+        }
 
         // Draw the list dividers
-        for (int i = 0; i < count; i++) {
-            // Don't draw a divider to the right of the last item in the adapter
-            if (!(i == count - 1 && isLastItemInAdapter(mRightViewAdapterIndex))) {
-                View child = getChildAt(i);
-
-                bounds.left = child.getRight();
-                bounds.right = child.getRight() + mDividerWidth;
-
-                // Clip at the left edge of the screen
-                if (bounds.left < getPaddingLeft()) {
-                    bounds.left = getPaddingLeft();
-                }
-
-                // Clip at the right edge of the screen
-                if (bounds.right > getWidth() - getPaddingRight()) {
-                    bounds.right = getWidth() - getPaddingRight();
-                }
+        for (int i = 0; i < dividerCount; i++) {
+            final View child = getChildAt(i * mRowCount);
+            final LayoutParams params = getLayoutParams(child);
+
+            // The divider goes to the right of the space the column and its decorations take up
+            bounds.left = child.getLeft() - params.decorationLeft + getColumnWidth(i);
+            bounds.right = bounds.left + mDividerWidth;
+
+            if (mDividerPaint != null) {
+                // A vertical line as wide as the divider, centered on it
+                final float x = bounds.left + mDividerWidth / 2f;
+                mDividerLines[i * 4] = x;
+                mDividerLines[i * 4 + 1] = bounds.top;
+                mDividerLines[i * 4 + 2] = x;
+                mDividerLines[i * 4 + 3] = bounds.bottom;
+            } else {
+                mDivider.setBounds(bounds);
+                mDivider.draw(canvas);
+            }
 
-                // Draw a divider to the right of the child
+            // If the first view, determine if a divider should be shown to the left of it.
+            // A divider should be shown if the left side of this view does not fill to the left edge of the screen.
+            final int left = child.getLeft() - params.decorationLeft;
+            if (i == 0 && left > getPaddingLeft()) {
+                bounds.left = getPaddingLeft();
+                bounds.right = left;
                 drawDivider(canvas, bounds);
-
-                // If the first view, determine if a divider should be shown to the left of it.
-                // A divider should be shown if the left side of this view does not fill to the left edge of the screen.
-                if (i == 0 && child.getLeft() > getPaddingLeft()) {
-                    bounds.left = getPaddingLeft();
-                    bounds.right = child.getLeft();
-                    drawDivider(canvas, bounds);
-                }
             }
         }
+
+        if (mDividerPaint != null && dividerCount > 0) {
+            mDividerPaint.setStrokeWidth(mDividerWidth);
+            canvas.drawLines(mDividerLines, 0, dividerCount * 4, mDividerPaint);
+        }
+
+        canvas.restoreToCount(restoreCount);
     }
 
     /**
@@ -882,7 +3330,9 @@ public class HorizontalListView extends AdapterView<ListAdapter> {
      * @param bounds The bounds of the divider.
      */
     private void drawDivider(Canvas canvas, Rect bounds) {
-        if (mDivider != null) {
+        if (mDividerPaint != null) {
+            canvas.drawRect(bounds, mDividerPaint);
+        } else if (mDivider != null) {
             mDivider.setBounds(bounds);
             mDivider.draw(canvas);
         }
@@ -892,12 +3342,22 @@ public class HorizontalListView extends AdapterView<ListAdapter> {
     protected void onDraw(Canvas canvas) {
         super.onDraw(canvas);
         drawDividers(canvas);
+
+        for (int i = 0; i < mItemDecorations.size(); i++) {
+            mItemDecorations.get(i).onDraw(canvas, this);
+        }
     }
 
     @Override
     protected void dispatchDraw(Canvas canvas) {
         super.dispatchDraw(canvas);
+
+        for (int i = 0; i < mItemDecorations.size(); i++) {
+            mItemDecorations.get(i).onDrawOver(canvas, this);
+        }
+
         drawEdgeGlow(canvas);
+        drawFastScrollThumb(canvas);
     }
 
     @Override
@@ -906,10 +3366,30 @@ public class HorizontalListView extends AdapterView<ListAdapter> {
         // get the selector in the right state, but we don't want to press each child.
     }
 
+    /**
+     * Starts a fling once the user lifts their finger while dragging quickly enough.
+     *
+     * @param e1 Always null; the down event is not kept so that touch handling does not allocate
+     * @param e2 The up event that ended the drag
+     */
     protected boolean onFling(MotionEvent e1, MotionEvent e2, float velocityX, float velocityY) {
+        mSmoothScrollTargetPosition = INVALID_POSITION;
+        mFlingTrackerOffset = 0;
         mFlingTracker.fling(mNextX, 0, (int) -velocityX, 0, 0, mMaxX, 0, 0);
+
+        if (mSnapMode != SnapMode.NONE && getChildCount() > 0) {
+            // Keep the fling and the speed it was released at, only move where it ends onto an item
+            final int position = getSnapPosition(mFlingTracker.getFinalX(), (int) -velocityX);
+            final SnapMode alignment = getSnapAlignment();
+            mFlingTracker.setFinalX(getAlignedScrollX(position, alignment));
+
+            // Refine where the fling ends once the item is on screen and its real size is known
+            mSmoothScrollTargetPosition = position;
+            mSmoothScrollTargetAlignment = alignment;
+        }
+
         setCurrentScrollState(OnScrollStateChangedListener.ScrollState.SCROLL_STATE_FLING);
-        requestLayout();
+        postFlingFrame();
         return true;
     }
 
@@ -953,100 +3433,342 @@ public class HorizontalListView extends AdapterView<ListAdapter> {
         }
     }
 
-    private class GestureListener extends GestureDetector.SimpleOnGestureListener {
+    //长按检测,提前创建以便每次触摸不需要分配
+    private final Runnable mCheckForLongPress = new Runnable() {
         @Override
-        public boolean onDown(MotionEvent e) {
-            return HorizontalListView.this.onDown(e);
+        public void run() {
+            mHasPerformedLongPress = true;
+            onLongPress((int) mDownX, (int) mDownY);
         }
+    };
 
-        @Override
-        public boolean onFling(MotionEvent e1, MotionEvent e2, float velocityX, float velocityY) {
-            return HorizontalListView.this.onFling(e1, e2, velocityX, velocityY);
+    //处理单击,如果点击在子视图上通知item点击监听器,否则通知点击监听器
+    private boolean onSingleTap(int x, int y) {
+        unpressTouchedChild();
+        OnItemClickListener onItemClickListener = getOnItemClickListener();
+
+        final int index = getChildIndex(x, y);
+
+        // If the tap is inside one of the child views, and we are not blocking touches
+        if (index >= 0 && !mBlockTouchAction) {
+            View child = getChildAt(index);
+            LayoutParams params = getLayoutParams(child);
+
+            if (onItemClickListener != null) {
+                onItemClickListener.onItemClick(HorizontalListView.this, child, params.position, params.itemId);
+                return true;
+            }
         }
 
-        @Override
-        public boolean onScroll(MotionEvent e1, MotionEvent e2, float distanceX, float distanceY) {
-            // Lock the user into interacting just with this view
-            requestParentListViewToNotInterceptTouchEvents(true);
+        if (mOnClickListener != null && !mBlockTouchAction) {
+            mOnClickListener.onClick(HorizontalListView.this);
+        }
 
-            setCurrentScrollState(OnScrollStateChangedListener.ScrollState.SCROLL_STATE_TOUCH_SCROLL);
-            unpressTouchedChild();
-            mNextX += (int) distanceX;
-            updateOverscrollAnimation(Math.round(distanceX));
-            requestLayout();
+        return false;
+    }
+
+    //处理长按,通知item长按监听器
+    private void onLongPress(int x, int y) {
+        unpressTouchedChild();
+
+        final int index = getChildIndex(x, y);
+        if (index >= 0 && !mBlockTouchAction) {
+            View child = getChildAt(index);
+            OnItemLongClickListener onItemLongClickListener = getOnItemLongClickListener();
+            if (onItemLongClickListener != null) {
+                LayoutParams params = getLayoutParams(child);
+                boolean handled = onItemLongClickListener.onItemLongClick(HorizontalListView.this, child, params.position, params.itemId);
+
+                if (handled) {
+                    // BZZZTT!!1!
+                    performHapticFeedback(HapticFeedbackConstants.LONG_PRESS);
+                }
+            }
+        }
+    }
+
+    @Override
+    public boolean onInterceptTouchEvent(MotionEvent event) {
+        final int action = MotionEventCompat.getActionMasked(event);
 
+        // Once dragging, take every move away from the children without looking at it again
+        if (action == MotionEvent.ACTION_MOVE && mIsBeingDragged) {
             return true;
         }
 
-        @Override
-        public boolean onSingleTapConfirmed(MotionEvent e) {
-            unpressTouchedChild();
-            OnItemClickListener onItemClickListener = getOnItemClickListener();
+        switch (action) {
+            case MotionEvent.ACTION_DOWN:
+                // Grabbing the fast-scroll thumb takes the whole touch
+                if (startFastScrollDrag(event)) {
+                    return true;
+                }
 
-            final int index = getChildIndex((int) e.getX(), (int) e.getY());
+                startTouch(event);
 
-            // If the tap is inside one of the child views, and we are not blocking touches
-            if (index >= 0 && !mBlockTouchAction) {
-                View child = getChildAt(index);
-                int adapterIndex = mLeftViewAdapterIndex + index;
+                // A finger that caught a fling should not press or click the child underneath it
+                return mBlockTouchAction;
 
-                if (onItemClickListener != null) {
-                    onItemClickListener.onItemClick(HorizontalListView.this, child, adapterIndex, mAdapter.getItemId(adapterIndex));
-                    return true;
+            case MotionEvent.ACTION_MOVE:
+                trackMovement(event);
+
+                if (mScrollAxisLock == 0) {
+                    startDragIfPastSlop(event);
                 }
-            }
+                break;
 
-            if (mOnClickListener != null && !mBlockTouchAction) {
-                mOnClickListener.onClick(HorizontalListView.this);
-            }
+            case MotionEvent.ACTION_POINTER_DOWN:
+                onSecondaryPointerDown(event);
+                break;
 
-            return false;
+            case MotionEventCompat.ACTION_POINTER_UP:
+                onSecondaryPointerUp(event);
+                break;
+
+            case MotionEvent.ACTION_UP:
+            case MotionEvent.ACTION_CANCEL:
+                // A child is handling this touch, so just forget about it
+                endTouch();
+                break;
         }
 
-        @Override
-        public void onLongPress(MotionEvent e) {
-            unpressTouchedChild();
+        return mIsBeingDragged;
+    }
 
-            final int index = getChildIndex((int) e.getX(), (int) e.getY());
-            if (index >= 0 && !mBlockTouchAction) {
-                View child = getChildAt(index);
-                OnItemLongClickListener onItemLongClickListener = getOnItemLongClickListener();
-                if (onItemLongClickListener != null) {
-                    int adapterIndex = mLeftViewAdapterIndex + index;
-                    boolean handled = onItemLongClickListener.onItemLongClick(HorizontalListView.this, child, adapterIndex, mAdapter
-                            .getItemId(adapterIndex));
-
-                    if (handled) {
-                        // BZZZTT!!1!
-                        performHapticFeedback(HapticFeedbackConstants.LONG_PRESS);
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        if (mIsDraggingFastScrollThumb) {
+            onFastScrollTouchEvent(event);
+            return true;
+        }
+
+        switch (MotionEventCompat.getActionMasked(event)) {
+            case MotionEvent.ACTION_DOWN:
+                // The down event has already been handled if onInterceptTouchEvent saw it first
+                if (event.getDownTime() != mLastDownTime) {
+                    startTouch(event);
+                }
+                break;
+
+            case MotionEvent.ACTION_MOVE:
+                trackMovement(event);
+
+                if (mScrollAxisLock == 0) {
+                    startDragIfPastSlop(event);
+                }
+
+                if (mIsBeingDragged) {
+                    final int pointerIndex = MotionEventCompat.findPointerIndex(event, mActivePointerId);
+                    if (pointerIndex >= 0) {
+                        // Only consume whole pixels so that the fractions are not lost between moves
+                        final int deltaX = (int) (mLastMotionX - MotionEventCompat.getX(event, pointerIndex));
+                        mLastMotionX -= deltaX;
+
+                        if (deltaX != 0) {
+                            onDrag(deltaX);
+                        }
                     }
                 }
+                break;
+
+            case MotionEvent.ACTION_POINTER_DOWN:
+                onSecondaryPointerDown(event);
+                break;
+
+            case MotionEventCompat.ACTION_POINTER_UP:
+                onSecondaryPointerUp(event);
+                break;
+
+            case MotionEvent.ACTION_UP:
+                trackMovement(event);
+                onUp(event);
+                endTouch();
+                break;
+
+            case MotionEvent.ACTION_CANCEL:
+                unpressTouchedChild();
+
+                if (mIsBeingDragged) {
+                    settleAfterDrag();
+                }
+
+                endTouch();
+                break;
+        }
+
+        return true;
+    }
+
+    //开始跟踪一次新的触摸
+    private void startTouch(MotionEvent event) {
+        mLastDownTime = event.getDownTime();
+        mActivePointerId = MotionEventCompat.getPointerId(event, 0);
+        mDownX = mLastMotionX = event.getX();
+        mDownY = event.getY();
+        mIsBeingDragged = false;
+        mHasPerformedLongPress = false;
+        mScrollAxisLock = 0;
+
+        // Find a parent that wants a share of this gesture's horizontal scrolls
+        mNestedScrollHelper.startNestedScroll(NestedScrollParent.SCROLL_AXIS_HORIZONTAL);
+
+        if (mVelocityTracker == null) {
+            mVelocityTracker = VelocityTracker.obtain();
+        } else {
+            mVelocityTracker.clear();
+        }
+        mVelocityTracker.addMovement(event);
+
+        onDown(event);
+
+        if (mViewBeingTouched != null) {
+            postDelayed(mCheckForLongPress, ViewConfiguration.getLongPressTimeout());
+        }
+    }
+
+    private void trackMovement(MotionEvent event) {
+        if (mVelocityTracker != null) {
+            mVelocityTracker.addMovement(event);
+        }
+    }
+
+    //手指移动超过触摸阈值时锁定滚动方向:水平则开始拖动,垂直则本次触摸交给父视图
+    private void startDragIfPastSlop(MotionEvent event) {
+        final int pointerIndex = MotionEventCompat.findPointerIndex(event, mActivePointerId);
+        if (pointerIndex < 0) {
+            return;
+        }
+
+        final float x = MotionEventCompat.getX(event, pointerIndex);
+        final float xDiff = Math.abs(x - mDownX);
+        final float yDiff = Math.abs(MotionEventCompat.getY(event, pointerIndex) - mDownY);
+
+        if (xDiff > mTouchSlop && xDiff > yDiff) {
+            mScrollAxisLock = NestedScrollParent.SCROLL_AXIS_HORIZONTAL;
+            mIsBeingDragged = true;
+            removeCallbacks(mCheckForLongPress);
+
+            // Lock the user into interacting just with this view, whatever kind of container it is in
+            requestDisallowParentInterceptTouchEvent(true);
+
+            setCurrentScrollState(OnScrollStateChangedListener.ScrollState.SCROLL_STATE_TOUCH_SCROLL);
+            unpressTouchedChild();
+
+            // Start scrolling from the edge of the slop so the list does not jump under the finger
+            mLastMotionX = x > mDownX ? mDownX + mTouchSlop : mDownX - mTouchSlop;
+        } else if (yDiff > mTouchSlop) {
+            // The gesture is vertical, so it belongs to the parent until the finger is lifted
+            mScrollAxisLock = NestedScrollParent.SCROLL_AXIS_VERTICAL;
+            removeCallbacks(mCheckForLongPress);
+            unpressTouchedChild();
+            mNestedScrollHelper.stopNestedScroll();
+        }
+    }
+
+    //拖动列表deltaX像素,先让配合的父视图消耗一部分,再把列表没有消耗的部分交给它
+    private void onDrag(int deltaX) {
+        if (mNestedScrollHelper.dispatchNestedPreScroll(deltaX, 0, mNestedScrollConsumed, mNestedScrollOffset)) {
+            deltaX -= mNestedScrollConsumed[0];
+        }
+
+        // Later touch positions are relative to where the parent moved the list to
+        mLastMotionX -= mNestedScrollOffset[0];
+
+        if (deltaX == 0) {
+            return;
+        }
+
+        // The list only moves within its scroll range, the rest is over scroll
+        final int consumedX = Math.max(0, Math.min(mNextX + deltaX, mMaxX)) - Math.max(0, Math.min(mNextX, mMaxX));
+        mNextX += deltaX;
+
+        if (mNestedScrollHelper.dispatchNestedScroll(consumedX, 0, deltaX - consumedX, 0, mNestedScrollOffset)) {
+            mLastMotionX -= mNestedScrollOffset[0];
+        } else {
+            // Only glow at the edge when there is no parent to take the over scroll
+            updateOverscrollAnimation(deltaX);
+        }
+
+        scrollChildrenToNextX();
+    }
+
+    //手指抬起,根据速度开始跟踪滚动,或者处理点击
+    private void onUp(MotionEvent event) {
+        if (mIsBeingDragged) {
+            mVelocityTracker.computeCurrentVelocity(1000, mMaximumFlingVelocity);
+            final float velocityX = VelocityTrackerCompat.getXVelocity(mVelocityTracker, mActivePointerId);
+
+            if (Math.abs(velocityX) > mMinimumFlingVelocity && !mNestedScrollHelper.dispatchNestedPreFling(-velocityX, 0)) {
+                mNestedScrollHelper.dispatchNestedFling(-velocityX, 0, mMaxX > 0);
+                onFling(null, event, velocityX, 0);
+            } else {
+                settleAfterDrag();
+            }
+        } else {
+            // A gesture that locked to an axis, or that left the slop without the parent taking it, is a swipe and not a tap
+            if (!mHasPerformedLongPress && mScrollAxisLock == 0 && isInsideTapRegion(event)) {
+                onSingleTap((int) event.getX(), (int) event.getY());
+            }
+
+            // If not flinging then we are idle now
+            if (mFlingTracker.isFinished()) {
+                setCurrentScrollState(OnScrollStateChangedListener.ScrollState.SCROLL_STATE_IDLE);
             }
         }
-    };
+    }
 
-    @Override
-    public boolean onTouchEvent(MotionEvent event) {
-        // Detect when the user lifts their finger off the screen after a touch
-        if (event.getAction() == MotionEvent.ACTION_UP) {
-            // If not flinging then we are idle now. The user just finished a finger scroll.
-            if (mFlingTracker == null || mFlingTracker.isFinished()) {
+    //手指抬起的位置是否还在按下位置的触摸阈值之内
+    private boolean isInsideTapRegion(MotionEvent event) {
+        return Math.abs(event.getX() - mDownX) <= mTouchSlop && Math.abs(event.getY() - mDownY) <= mTouchSlop;
+    }
+
+    //拖动结束但没有跟踪滚动,停在最近的item上或者进入空闲状态
+    private void settleAfterDrag() {
+        if (mFlingTracker.isFinished()) {
+            if (mSnapMode != SnapMode.NONE && getChildCount() > 0) {
+                // Settle on the nearest item
+                startSnapScroll(mNextX, SNAP_SETTLE_DURATION);
+            } else {
                 setCurrentScrollState(OnScrollStateChangedListener.ScrollState.SCROLL_STATE_IDLE);
             }
+        }
+    }
+
+    //结束本次触摸,清理状态
+    private void endTouch() {
+        removeCallbacks(mCheckForLongPress);
+        unpressTouchedChild();
 
-            // Allow the user to interact with parent views
-            requestParentListViewToNotInterceptTouchEvents(false);
+        mIsBeingDragged = false;
+        mActivePointerId = INVALID_POINTER;
+        mScrollAxisLock = 0;
 
-            releaseEdgeGlow();
-        } else if (event.getAction() == MotionEvent.ACTION_CANCEL) {
-            unpressTouchedChild();
-            releaseEdgeGlow();
+        // Allow the user to interact with parent views
+        mNestedScrollHelper.stopNestedScroll();
+        requestDisallowParentInterceptTouchEvent(false);
 
-            // Allow the user to interact with parent views
-            requestParentListViewToNotInterceptTouchEvents(false);
-        }
+        releaseEdgeGlow();
+    }
 
-        return super.onTouchEvent(event);
+    //新的手指按下,改为跟踪该手指
+    private void onSecondaryPointerDown(MotionEvent event) {
+        final int pointerIndex = MotionEventCompat.getActionIndex(event);
+        mLastMotionX = MotionEventCompat.getX(event, pointerIndex);
+        mActivePointerId = MotionEventCompat.getPointerId(event, pointerIndex);
+    }
+
+    //正在跟踪的手指抬起,改为跟踪另一个手指
+    private void onSecondaryPointerUp(MotionEvent event) {
+        final int pointerIndex = MotionEventCompat.getActionIndex(event);
+
+        if (MotionEventCompat.getPointerId(event, pointerIndex) == mActivePointerId) {
+            final int newPointerIndex = pointerIndex == 0 ? 1 : 0;
+            mLastMotionX = MotionEventCompat.getX(event, newPointerIndex);
+            mActivePointerId = MotionEventCompat.getPointerId(event, newPointerIndex);
+
+            if (mVelocityTracker != null) {
+                mVelocityTracker.clear();
+            }
+        }
     }
 
     /** Release the EdgeGlow so it animates */
@@ -1096,7 +3818,7 @@ public class HorizontalListView extends AdapterView<ListAdapter> {
     private void determineIfLowOnData() {
         // Check if the threshold has been reached and a listener is registered
         if (mRunningOutOfDataListener != null && mAdapter != null &&
-                mAdapter.getCount() - (mRightViewAdapterIndex + 1) < mRunningOutOfDataThreshold) {
+                mAdapter.getCount() - (getLastVisiblePosition() + 1) < mRunningOutOfDataThreshold) {
 
             // Prevent notification more than once
             if (!mHasNotifiedRunningLowOnData) {
@@ -1116,6 +3838,181 @@ public class HorizontalListView extends AdapterView<ListAdapter> {
         mOnClickListener = listener;
     }
 
+    /**
+     * Optional interface for a ListAdapter that can report which items changed, instead of only that something changed. When the
+     * adapter set on a HorizontalListView implements this, only the children affected by a notification are rebound. An adapter
+     * should send either a range notification or notifyDataSetChanged for a change, not both.
+     */
+    public static interface ItemRangeNotifier {
+        /** Registers an observer to be called with the ranges of items that change */
+        void registerItemRangeObserver(ItemRangeObserver observer);
+
+        /** Unregisters an observer previously registered with {@link #registerItemRangeObserver(ItemRangeObserver)} */
+        void unregisterItemRangeObserver(ItemRangeObserver observer);
+    }
+
+    /**
+     * Receives the ranges of items that change in an {@link ItemRangeNotifier} adapter. Each call must be made after the adapter's
+     * data has been updated.
+     */
+    public static abstract class ItemRangeObserver {
+        /** Called when the content of itemCount items starting at positionStart changed */
+        public void onItemRangeChanged(int positionStart, int itemCount) {
+        }
+
+        /** Called when itemCount items were inserted, the first of them now being at positionStart */
+        public void onItemRangeInserted(int positionStart, int itemCount) {
+        }
+
+        /** Called when itemCount items that started at positionStart were removed */
+        public void onItemRangeRemoved(int positionStart, int itemCount) {
+        }
+
+        /** Called when the item at fromPosition was moved to toPosition */
+        public void onItemMoved(int fromPosition, int toPosition) {
+        }
+    }
+
+    /**
+     * Works out item widths from the adapter's data alone, without creating views, see
+     * {@link HorizontalListView#setItemWidthProvider(ItemWidthProvider, Executor)}. It is called on a background thread, so it must
+     * only read data that is safe to read from another thread.
+     */
+    public static interface ItemWidthProvider {
+        /**
+         * Works out the widths of a range of items.
+         *
+         * @param positionStart The adapter position of the first item
+         * @param count The number of items
+         * @param outWidths Receives the width in px of each item, starting at index 0, not counting dividers or decorations. An entry
+         * left negative means the width can not be worked out from the data, and that item is measured instead.
+         */
+        void getItemWidths(int positionStart, int count, int[] outWidths);
+    }
+
+    /**
+     * Implemented by a container that wants to take part in the scrolling of a HorizontalListView inside it, such as a vertical
+     * feed that moves its header away as the list is dragged. The nearest accepting ancestor is found when a gesture starts. The
+     * steps and their meaning follow the nested scrolling of later platform versions, so an implementation can forward to it.
+     *
+     * @see HorizontalListView#setNestedScrollParentEnabled(boolean)
+     */
+    public static interface NestedScrollParent {
+        /** Scrolling along the horizontal axis */
+        int SCROLL_AXIS_HORIZONTAL = 1 << 0;
+
+        /** Scrolling along the vertical axis */
+        int SCROLL_AXIS_VERTICAL = 1 << 1;
+
+        /**
+         * Called when a gesture starts in the list.
+         *
+         * @param child The direct child of this parent that contains the list
+         * @param target The list
+         * @param axes The axes the list scrolls along
+         * @return True to take part in this gesture
+         */
+        boolean onStartNestedScroll(View child, View target, int axes);
+
+        /** Called after onStartNestedScroll returned true */
+        void onNestedScrollAccepted(View child, View target, int axes);
+
+        /**
+         * Called before the list scrolls by dx, dy.
+         *
+         * @param consumed Set to the distance this parent consumed along each axis, the list only scrolls by the rest
+         */
+        void onNestedPreScroll(View target, int dx, int dy, int[] consumed);
+
+        /** Called after the list scrolled, with the distance it scrolled and the distance it could not */
+        void onNestedScroll(View target, int dxConsumed, int dyConsumed, int dxUnconsumed, int dyUnconsumed);
+
+        /** Called before the list flings, in px per second in the scroll direction. Return true to fling instead of the list. */
+        boolean onNestedPreFling(View target, float velocityX, float velocityY);
+
+        /** Called when the list flings, consumed being true if it can scroll. Return true if this parent reacted to it. */
+        boolean onNestedFling(View target, float velocityX, float velocityY, boolean consumed);
+
+        /** Called when the gesture ends */
+        void onStopNestedScroll(View target);
+    }
+
+    /**
+     * Optional interface for a ListAdapter with stable ids, used by the measure cache. The version of an item must change
+     * whenever a change to its content could change its size.
+     */
+    public static interface ItemContentVersionProvider {
+        /** Gets the version of the content of the item at the given position */
+        long getItemContentVersion(int position);
+    }
+
+    /**
+     * Leaves space around items and draws extra content, such as section gaps and badges, without wrapping every item view in
+     * another layout. The offsets of an item are asked for each time it is bound. Offsets are not supported together with a fixed
+     * item width, since the scroll positions would no longer follow from the width alone.
+     */
+    public static abstract class ItemDecoration {
+        /**
+         * Sets the space to leave to the left and right of an item in outRect.left and outRect.right. The top and bottom are not
+         * used. The rect is empty when this is called.
+         *
+         * @param outRect Receives the offsets
+         * @param position The adapter position of the item
+         * @param parent The list the item is in
+         */
+        public void getItemOffsets(Rect outRect, int position, HorizontalListView parent) {
+        }
+
+        /** Draws before the children, so anything drawn here appears underneath them */
+        public void onDraw(Canvas canvas, HorizontalListView parent) {
+        }
+
+        /** Draws after the children, so anything drawn here appears on top of them */
+        public void onDrawOver(Canvas canvas, HorizontalListView parent) {
+        }
+    }
+
+    /** Receives the cost of each layout pass, see {@link HorizontalListView#setOnLayoutMetricsListener(OnLayoutMetricsListener)} */
+    public static interface OnLayoutMetricsListener {
+        /**
+         * Called at the end of each layout pass. Both objects are reused for every pass, so copy them to keep their values.
+         *
+         * @param pass What this pass cost
+         * @param totals What every pass has cost since metrics were enabled or last reset
+         */
+        void onLayoutPass(LayoutMetrics pass, LayoutMetrics totals);
+    }
+
+    /** Creates views for {@link HorizontalListView#prewarm(int, int, ViewFactory, Looper)} without binding them to an item */
+    public static interface ViewFactory {
+        /**
+         * Creates a view of the given type, as the adapter would for a null convert view. When a background looper is given to
+         * prewarm this is called on that looper's thread.
+         *
+         * @param parent The list the view will be added to. It must not be modified by this method.
+         * @param viewType The view type, as returned by {@code Adapter#getItemViewType(int)}
+         */
+        View createView(ViewGroup parent, int viewType);
+    }
+
+    /** Defines how the list comes to rest after a fling */
+    public enum SnapMode {
+        /** The list stops wherever the fling ends */
+        NONE,
+
+        /** The list stops with the left edge of an item at the left edge of the list */
+        START,
+
+        /** The list stops with an item centered in the list */
+        CENTER,
+
+        /** The list stops with the right edge of an item at the right edge of the list */
+        END,
+
+        /** Each fling moves the list by one page of items, stopping with the left edge of an item at the left edge of the list */
+        PAGE
+    }
+
     /**
      * Interface definition for a callback to be invoked when the view scroll state has changed.
      */
@@ -1161,6 +4058,35 @@ public class HorizontalListView extends AdapterView<ListAdapter> {
      * If it has changed and a listener is registered then it will be notified.
      */
     private void setCurrentScrollState(OnScrollStateChangedListener.ScrollState newScrollState) {
+        if (mImageLoader != null) {
+            if (mCurrentScrollState != newScrollState) {
+                mImageLoader.onScrollStateChanged(newScrollState);
+            }
+
+            if (newScrollState == OnScrollStateChangedListener.ScrollState.SCROLL_STATE_FLING) {
+                // Every fling or snap is started before the state is set, so the end of the scroll is known
+                notifyImageLoaderOfFlingTarget();
+            }
+        }
+
+        if (mCurrentScrollState != newScrollState) {
+            if (newScrollState == OnScrollStateChangedListener.ScrollState.SCROLL_STATE_FLING) {
+                startFlingLayers();
+            } else if (newScrollState == OnScrollStateChangedListener.ScrollState.SCROLL_STATE_IDLE) {
+                stopFlingLayers();
+            }
+        }
+
+        if (mFastScrollEnabled && mCurrentScrollState != newScrollState) {
+            if (newScrollState == OnScrollStateChangedListener.ScrollState.SCROLL_STATE_IDLE) {
+                postDelayed(mHideFastScrollThumb, FAST_SCROLL_HIDE_DELAY);
+            } else {
+                // Show the thumb while the list moves
+                removeCallbacks(mHideFastScrollThumb);
+                mFastScrollThumbShown = true;
+            }
+        }
+
         // If the state actually changed then notify listener if there is one
         if (mCurrentScrollState != newScrollState && mOnScrollStateChangedListener != null) {
             mOnScrollStateChangedListener.onScrollStateChanged(newScrollState);
@@ -1169,6 +4095,292 @@ public class HorizontalListView extends AdapterView<ListAdapter> {
         mCurrentScrollState = newScrollState;
     }
 
+    /**
+     * Shows a thumb along the bottom of the list while it scrolls, which can be dragged to move quickly through long lists. The
+     * thumb is only shown when the list is at least {@value #FAST_SCROLL_MIN_PAGES} screens wide. Its position follows the
+     * recorded item widths, estimating the ones not measured yet, and dragging it far binds only the items at the destination.
+     */
+    public void setFastScrollEnabled(boolean enabled) {
+        mFastScrollEnabled = enabled;
+
+        if (!enabled) {
+            removeCallbacks(mHideFastScrollThumb);
+            mFastScrollThumbShown = false;
+            mIsDraggingFastScrollThumb = false;
+        }
+
+        invalidate();
+    }
+
+    /** Returns true if the fast-scroll thumb is enabled */
+    public boolean isFastScrollEnabled() {
+        return mFastScrollEnabled;
+    }
+
+    /**
+     * Enables or disables nested scrolling with a {@link NestedScrollParent}. When enabled, which is the default, the nearest
+     * ancestor that implements it and accepts a gesture is offered each horizontal drag before the list scrolls, is given what
+     * the list could not scroll, and is offered each fling. On API 21 and above, a gesture that no such ancestor accepts takes
+     * part in the platform's nested scrolling instead, which is switched with {@link #setNestedScrollingEnabled(boolean)} or the
+     * android:nestedScrollingEnabled attribute.
+     */
+    public void setNestedScrollParentEnabled(boolean enabled) {
+        mNestedScrollHelper.setEnabled(enabled);
+    }
+
+    /** Returns true if nested scrolling with a {@link NestedScrollParent} is enabled */
+    public boolean isNestedScrollParentEnabled() {
+        return mNestedScrollHelper.isEnabled();
+    }
+
+    /**
+     * Turns on hardware layers for the children while the list flings, on API 11 and above when the list is hardware
+     * accelerated. A fling only moves the children, so a child with a layer is drawn from it instead of drawing its content again
+     * every frame. Children added during the fling get a layer too. The layers are turned off when the list is idle again.
+     * <p>
+     * Children with a layer of their own and children whose content is animating are left alone. Once the layers would take more
+     * memory than the budget, see {@link #setFlingLayerMemoryBudget(int)}, no more are turned on.
+     */
+    public void setFlingLayersEnabled(boolean enabled) {
+        mFlingLayersEnabled = enabled;
+
+        if (!enabled) {
+            stopFlingLayers();
+        }
+    }
+
+    /** Returns true if hardware layers are turned on for the children while the list flings */
+    public boolean isFlingLayersEnabled() {
+        return mFlingLayersEnabled;
+    }
+
+    /**
+     * Sets the most memory the hardware layers turned on during a fling may use. Each layer is counted as its width times its
+     * height times {@value #FLING_LAYER_BYTES_PER_PIXEL} bytes. The default budget is worked out from the list's own width and
+     * height when a layer is turned on, not from the size of the screen, so a short list gets a small budget.
+     *
+     * @param bytes The budget in bytes, or 0 for {@value #FLING_LAYER_DEFAULT_SCREENS} times getWidth() * getHeight() of the list
+     */
+    public void setFlingLayerMemoryBudget(int bytes) {
+        mFlingLayerBudget = Math.max(0, bytes);
+    }
+
+    /** Gets the budget for the hardware layers turned on during a fling, or 0 if it is worked out from the size of the list */
+    public int getFlingLayerMemoryBudget() {
+        return mFlingLayerBudget;
+    }
+
+    //开始跟踪滚动,给屏幕上的子视图打开硬件层
+    private void startFlingLayers() {
+        if (!mFlingLayersEnabled || mFlingLayersActive || Build.VERSION.SDK_INT < Build.VERSION_CODES.HONEYCOMB) {
+            return;
+        }
+
+        mFlingLayersActive = true;
+
+        for (int i = 0; i < getChildCount(); i++) {
+            startFlingLayer(getChildAt(i));
+        }
+    }
+
+    //在内存预算之内给一个子视图打开硬件层
+    private void startFlingLayer(View child) {
+        // Without hardware acceleration the layer would be a software one, drawn again whenever the child changes
+        if (!HoneycombPlus.isHardwareAccelerated(this)) {
+            return;
+        }
+
+        final LayoutParams params = getLayoutParams(child);
+        if (params.flingLayerBytes > 0) {
+            return;
+        }
+
+        // A layer the app set is not ours to turn off, and content that animates would be drawn again into the layer every frame
+        if (HoneycombPlus.hasLayer(child) || child.getAnimation() != null || ViewCompat.hasTransientState(child)) {
+            return;
+        }
+
+        final long bytes = (long) child.getMeasuredWidth() * child.getMeasuredHeight() * FLING_LAYER_BYTES_PER_PIXEL;
+        final long budget = mFlingLayerBudget > 0 ? mFlingLayerBudget : (long) getWidth() * getHeight() * FLING_LAYER_BYTES_PER_PIXEL * FLING_LAYER_DEFAULT_SCREENS;
+        if (bytes == 0 || bytes > Integer.MAX_VALUE || mFlingLayerBytes + bytes > budget) {
+            return;
+        }
+
+        HoneycombPlus.setHardwareLayer(child, true);
+        params.flingLayerBytes = (int) bytes;
+        mFlingLayerBytes += bytes;
+    }
+
+    //列表空闲,关闭由列表打开的所有硬件层
+    private void stopFlingLayers() {
+        if (!mFlingLayersActive) {
+            return;
+        }
+
+        mFlingLayersActive = false;
+
+        for (int i = 0; i < getChildCount(); i++) {
+            final View child = getChildAt(i);
+            stopFlingLayer(child, getLayoutParams(child));
+        }
+
+        mFlingLayerBytes = 0;
+    }
+
+    //关闭由列表给一个子视图打开的硬件层
+    private void stopFlingLayer(View child, LayoutParams params) {
+        if (params.flingLayerBytes > 0) {
+            HoneycombPlus.setHardwareLayer(child, false);
+            mFlingLayerBytes -= params.flingLayerBytes;
+            params.flingLayerBytes = 0;
+        }
+    }
+
+    /**
+     * Sets the drawable to draw the fast-scroll thumb with, stretched to the thumb's size
+     *
+     * @param thumb The drawable, or null to draw a plain gray bar
+     */
+    public void setFastScrollThumbDrawable(Drawable thumb) {
+        mFastScrollThumbDrawable = thumb;
+        invalidate();
+    }
+
+    /**
+     * Works out where the fast-scroll thumb is for the current scroll position.
+     *
+     * @return false if the list is too short to show the thumb
+     */
+    private boolean updateFastScrollThumbBounds() {
+        final int maxX = getEstimatedMaxX();
+        final int renderWidth = getRenderWidth();
+        if (maxX == Integer.MAX_VALUE || maxX <= 0 || maxX < renderWidth * (FAST_SCROLL_MIN_PAGES - 1)) {
+            return false;
+        }
+
+        final int trackLength = Math.max(0, renderWidth - mFastScrollThumbLength);
+        final int left = getPaddingLeft() + (int) ((long) trackLength * Math.max(0, Math.min(mCurrentX, maxX)) / maxX);
+        final int bottom = getHeight();
+
+        mFastScrollThumbBounds.set(left, bottom - mFastScrollThumbThickness, left + mFastScrollThumbLength, bottom);
+        return true;
+    }
+
+    //绘制快速滚动滑块
+    private void drawFastScrollThumb(Canvas canvas) {
+        if (!mFastScrollEnabled || !mFastScrollThumbShown || !updateFastScrollThumbBounds()) {
+            return;
+        }
+
+        if (mFastScrollThumbDrawable != null) {
+            mFastScrollThumbDrawable.setBounds(mFastScrollThumbBounds);
+            mFastScrollThumbDrawable.draw(canvas);
+        } else {
+            canvas.drawRect(mFastScrollThumbBounds, mFastScrollThumbPaint);
+        }
+    }
+
+    /**
+     * Starts dragging the fast-scroll thumb if the touch is on it.
+     *
+     * @return true if the thumb was grabbed
+     */
+    private boolean startFastScrollDrag(MotionEvent event) {
+        if (!mFastScrollEnabled || !mFastScrollThumbShown || !updateFastScrollThumbBounds()) {
+            return false;
+        }
+
+        final float x = event.getX();
+        final int slop = (mFastScrollTouchThickness - mFastScrollThumbThickness) / 2;
+        if (event.getY() < getHeight() - mFastScrollTouchThickness || x < mFastScrollThumbBounds.left - slop
+                || x > mFastScrollThumbBounds.right + slop) {
+            return false;
+        }
+
+        mIsDraggingFastScrollThumb = true;
+        mFastScrollGrabOffset = x - mFastScrollThumbBounds.left;
+        mLastDownTime = event.getDownTime();
+
+        // Stop any fling, the thumb decides where the list is now
+        mSmoothScrollTargetPosition = INVALID_POSITION;
+        mFlingTracker.forceFinished(true);
+
+        requestDisallowParentInterceptTouchEvent(true);
+        setCurrentScrollState(OnScrollStateChangedListener.ScrollState.SCROLL_STATE_TOUCH_SCROLL);
+        return true;
+    }
+
+    //处理拖动快速滚动滑块的触摸事件
+    private void onFastScrollTouchEvent(MotionEvent event) {
+        switch (MotionEventCompat.getActionMasked(event)) {
+            case MotionEvent.ACTION_MOVE:
+                fastScrollToThumbPosition(event.getX() - mFastScrollGrabOffset);
+                break;
+
+            case MotionEvent.ACTION_UP:
+            case MotionEvent.ACTION_CANCEL:
+                mIsDraggingFastScrollThumb = false;
+                requestDisallowParentInterceptTouchEvent(false);
+                settleAfterDrag();
+                break;
+        }
+    }
+
+    /** Scrolls the list to where the fast-scroll thumb's left edge would be at thumbLeft */
+    private void fastScrollToThumbPosition(float thumbLeft) {
+        final int maxX = getEstimatedMaxX();
+        final int trackLength = getRenderWidth() - mFastScrollThumbLength;
+        if (mAdapter == null || maxX == Integer.MAX_VALUE || trackLength <= 0) {
+            return;
+        }
+
+        final float fraction = Math.max(0, Math.min((thumbLeft - getPaddingLeft()) / trackLength, 1));
+        final int x = Math.round(fraction * maxX);
+
+        if (Math.abs(x - mCurrentX) < getWidth() || mFixedItemWidth > 0) {
+            // Close enough to scroll through, and fixed width items already jump straight there
+            mNextX = x;
+            scrollChildrenToNextX();
+        } else {
+            final int position = estimatePositionForScrollX(x);
+            if (position != INVALID_POSITION) {
+                jumpToPosition(position, estimateScrollX(position) - x);
+            }
+        }
+    }
+
+    /**
+     * Sets a loader to be told when the scroll state changes and when children are recycled, so it can hold back and cancel
+     * image loads for items that are only passing by during a fling. The loader's background thread is stopped while the list
+     * is detached from its window.
+     *
+     * @param imageLoader The loader, or null to stop telling the current one
+     */
+    public void setImageLoader(ImageLoader imageLoader) {
+        mImageLoader = imageLoader;
+    }
+
+    /** Gets the loader set with {@link #setImageLoader(ImageLoader)}, or null if there is none */
+    public ImageLoader getImageLoader() {
+        return mImageLoader;
+    }
+
+    //通知图片加载器当前跟踪滚动预计停止时可见的item
+    private void notifyImageLoaderOfFlingTarget() {
+        final int itemWidth = estimateItemWidth();
+        if (mAdapter == null || itemWidth <= 0) {
+            return;
+        }
+
+        final int finalX = mFlingTracker.getFinalX() + mFlingTrackerOffset;
+        final int firstColumn = estimatePositionForScrollX(finalX);
+        final int lastColumn = estimatePositionForScrollX(finalX + getRenderWidth() - 1);
+
+        if (firstColumn != INVALID_POSITION) {
+            mImageLoader.onFlingTargetChanged(mAdapter, getFirstPositionInColumn(firstColumn), getFirstPositionInColumn(lastColumn) + mRowCount - 1);
+        }
+    }
+
     /**
      * Updates the over scroll animation based on the scrolled offset.
      *
@@ -1238,6 +4450,26 @@ public class HorizontalListView extends AdapterView<ListAdapter> {
                 scroller.setFriction(friction);
             }
         }
+
+        /** Gets the color of the provided drawable */
+        public static int getColor(ColorDrawable drawable) {
+            return drawable.getColor();
+        }
+
+        /** Turns a hardware layer on or off for the provided view */
+        public static void setHardwareLayer(View view, boolean enabled) {
+            view.setLayerType(enabled ? View.LAYER_TYPE_HARDWARE : View.LAYER_TYPE_NONE, null);
+        }
+
+        /** Returns true if the provided view is drawn with hardware acceleration */
+        public static boolean isHardwareAccelerated(View view) {
+            return view.isHardwareAccelerated();
+        }
+
+        /** Returns true if the provided view has a layer of any type */
+        public static boolean hasLayer(View view) {
+            return view.getLayerType() != View.LAYER_TYPE_NONE;
+        }
     }
 
     @TargetApi(14)
@@ -1253,5 +4485,62 @@ public class HorizontalListView extends AdapterView<ListAdapter> {
         public static float getCurrVelocity(Scroller scroller) {
             return scroller.getCurrVelocity();
         }
+
+        /** Registers callbacks that trim the list's recycled view pool on memory pressure, returning them so they can be unregistered */
+        public static Object registerTrimMemoryCallbacks(Context context, final HorizontalListView list) {
+            final ComponentCallbacks2 callbacks = new ComponentCallbacks2() {
+                @Override
+                public void onTrimMemory(int level) {
+                    list.getRecycledViewPool().onTrimMemory(level);
+                }
+
+                @Override
+                public void onLowMemory() {
+                    list.getRecycledViewPool().onLowMemory();
+                }
+
+                @Override
+                public void onConfigurationChanged(Configuration newConfig) {
+                }
+            };
+
+            context.getApplicationContext().registerComponentCallbacks(callbacks);
+            return callbacks;
+        }
+
+        /** Unregisters callbacks returned by {@link #registerTrimMemoryCallbacks(Context, HorizontalListView)} */
+        public static void unregisterTrimMemoryCallbacks(Context context, Object callbacks) {
+            context.getApplicationContext().unregisterComponentCallbacks((ComponentCallbacks2) callbacks);
+        }
+    }
+
+    @TargetApi(16)
+    /** Wrapper class to protect access to API version 16 and above features */
+    private static final class JellyBeanPlus {
+        static {
+            if (Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN) {
+                throw new RuntimeException("Should not get to JellyBeanPlus class unless sdk is >= 16!");
+            }
+        }
+
+        /** Creates a frame callback that tells the list when a frame starts, returned as an Object so it can be kept on any version */
+        public static Object newPrefetchFrameCallback(final HorizontalListView list) {
+            return new Choreographer.FrameCallback() {
+                @Override
+                public void doFrame(long frameTimeNanos) {
+                    list.onPrefetchFrame(frameTimeNanos);
+                }
+            };
+        }
+
+        /** Posts a callback returned by {@link #newPrefetchFrameCallback(HorizontalListView)} to run when the next frame starts */
+        public static void postFrameCallback(Object callback) {
+            Choreographer.getInstance().postFrameCallback((Choreographer.FrameCallback) callback);
+        }
+
+        /** Removes a posted frame callback */
+        public static void removeFrameCallback(Object callback) {
+            Choreographer.getInstance().removeFrameCallback((Choreographer.FrameCallback) callback);
+        }
     }
 }
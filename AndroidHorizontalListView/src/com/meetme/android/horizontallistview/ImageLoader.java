@@ -0,0 +1,385 @@
+
+package com.meetme.android.horizontallistview;
+
+import android.graphics.Bitmap;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Process;
+import android.support.v4.util.LongSparseArray;
+import android.support.v4.util.LruCache;
+import android.view.View;
+import android.view.ViewParent;
+import android.widget.ImageView;
+import android.widget.ListAdapter;
+
+import com.meetme.android.horizontallistview.HorizontalListView.OnScrollStateChangedListener.ScrollState;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Loads a bitmap for each item of a {@link HorizontalListView} on a background thread and keeps the decoded bitmaps in a cache
+ * bounded by size in bytes. Bitmaps are keyed by the adapter's item id, so the adapter must have stable ids.
+ * <p>
+ * Set the loader on the list with {@link HorizontalListView#setImageLoader(ImageLoader)} and call {@link #load(long, ImageView)}
+ * from the adapter's getView. While the list is flinging, loads for items that are only passing by are held back and dropped
+ * when their views are recycled, and the items the fling is expected to land on are loaded first. All methods must be called on
+ * the UI thread.
+ * <p>
+ * A loader serves one list. Its background thread is stopped when that list is detached from its window, and started again
+ * for the loads still waiting when it is attached again. A loader that is not set on a list must be stopped with
+ * {@link #quit()}.
+ */
+public class ImageLoader {
+    /** Decodes the bitmap for an item. Called on the loader's background thread. */
+    public static interface BitmapDecoder {
+        /**
+         * @param itemId The stable id of the item, as returned by {@code Adapter#getItemId(int)}
+         * @return The bitmap, or null if there is none
+         */
+        Bitmap decodeBitmap(long itemId);
+    }
+
+    private final BitmapDecoder mDecoder;
+
+    private final LruCache<Long, Bitmap> mCache;
+
+    // The requests that have been made and not yet delivered, by item id
+    private final LongSparseArray<Request> mRequests = new LongSparseArray<Request>();
+
+    // The image views waiting for a bitmap, by image view and by the item view of the list they are in
+    private final HashMap<ImageView, Target> mTargets = new HashMap<ImageView, Target>();
+    private final HashMap<View, ArrayList<Target>> mTargetsByItemView = new HashMap<View, ArrayList<Target>>();
+
+    // Requests held back until the list stops flinging
+    private final ArrayList<Request> mDeferredRequests = new ArrayList<Request>();
+
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+
+    private HandlerThread mWorkerThread;
+
+    private Handler mWorkerHandler;
+
+    private ScrollState mScrollState = ScrollState.SCROLL_STATE_IDLE;
+
+    /**
+     * @param decoder Decodes the bitmap for an item
+     * @param maxCacheBytes The most bytes of decoded bitmaps to keep
+     */
+    public ImageLoader(BitmapDecoder decoder, int maxCacheBytes) {
+        mDecoder = decoder;
+        mCache = new LruCache<Long, Bitmap>(maxCacheBytes) {
+            @Override
+            protected int sizeOf(Long key, Bitmap value) {
+                return value.getRowBytes() * value.getHeight();
+            }
+        };
+    }
+
+    /**
+     * Shows the bitmap for an item in the image view. If it is cached it is shown straight away, otherwise the image view is
+     * cleared and the bitmap is shown once it has been decoded, unless the view is given another item or recycled first.
+     *
+     * @param itemId The stable id of the item
+     * @param imageView The image view to show the bitmap in
+     */
+    public void load(long itemId, ImageView imageView) {
+        final Target previous = removeTarget(imageView);
+        if (previous != null && previous.mRequest.mItemId != itemId) {
+            cancelIfUnwanted(previous.mRequest);
+        }
+
+        final Bitmap bitmap = mCache.get(itemId);
+        if (bitmap != null) {
+            imageView.setImageBitmap(bitmap);
+            return;
+        }
+
+        imageView.setImageDrawable(null);
+
+        Request request = mRequests.get(itemId);
+        if (request == null) {
+            request = new Request(itemId);
+            mRequests.put(itemId, request);
+
+            if (mScrollState == ScrollState.SCROLL_STATE_FLING) {
+                // The item is most likely only passing by, wait to see if it is still there when the fling ends
+                mDeferredRequests.add(request);
+            } else {
+                getWorkerHandler().post(request);
+            }
+        }
+
+        addTarget(new Target(imageView, getItemView(imageView), request));
+    }
+
+    /** Gets the cached bitmap for an item, or null if it is not cached */
+    public Bitmap getCachedBitmap(long itemId) {
+        return mCache.get(itemId);
+    }
+
+    /** Drops every cached bitmap */
+    public void clearCache() {
+        mCache.evictAll();
+    }
+
+    /** Cancels every request, drops every cached bitmap and stops the background thread */
+    public void quit() {
+        for (int i = mRequests.size() - 1; i >= 0; i--) {
+            mRequests.valueAt(i).mCancelled = true;
+        }
+
+        mRequests.clear();
+        mTargets.clear();
+        mTargetsByItemView.clear();
+        mDeferredRequests.clear();
+        clearCache();
+        stopWorkerThread();
+    }
+
+    /** Called by the list when it is attached to its window, loads whatever was still waiting when it was detached */
+    void onListAttached() {
+        if (mScrollState != ScrollState.SCROLL_STATE_FLING) {
+            postDeferredRequests();
+        }
+    }
+
+    /**
+     * Called by the list when it is detached from its window. Stops the background thread, keeping the loads image views are
+     * waiting for until the list is attached again, and dropping the ones that were only ahead of a fling.
+     */
+    void onListDetached() {
+        for (int i = mRequests.size() - 1; i >= 0; i--) {
+            final Request request = mRequests.valueAt(i);
+
+            if (request.mTargets.isEmpty()) {
+                request.mCancelled = true;
+                mRequests.removeAt(i);
+                mDeferredRequests.remove(request);
+            } else if (!mDeferredRequests.contains(request)) {
+                mDeferredRequests.add(request);
+            }
+        }
+
+        stopWorkerThread();
+    }
+
+    /** Called by the list when its scroll state changes */
+    void onScrollStateChanged(ScrollState scrollState) {
+        mScrollState = scrollState;
+
+        if (scrollState != ScrollState.SCROLL_STATE_FLING) {
+            // Whatever is still waiting belongs to views that are still on screen
+            postDeferredRequests();
+        }
+    }
+
+    private void postDeferredRequests() {
+        if (mDeferredRequests.isEmpty()) {
+            return;
+        }
+
+        final Handler workerHandler = getWorkerHandler();
+        for (int i = 0; i < mDeferredRequests.size(); i++) {
+            workerHandler.post(mDeferredRequests.get(i));
+        }
+
+        mDeferredRequests.clear();
+    }
+
+    /**
+     * Called by the list when a fling starts, with the range of items it is expected to stop on. Those items are loaded ahead of
+     * anything else that is waiting.
+     */
+    void onFlingTargetChanged(ListAdapter adapter, int firstPosition, int lastPosition) {
+        if (adapter == null || !adapter.hasStableIds() || firstPosition < 0) {
+            return;
+        }
+
+        final Handler workerHandler = getWorkerHandler();
+        final int last = Math.min(lastPosition, adapter.getCount() - 1);
+
+        // Post in reverse so the first landing item ends up at the front of the queue
+        for (int position = last; position >= firstPosition; position--) {
+            final long itemId = adapter.getItemId(position);
+
+            if (mCache.get(itemId) == null && mRequests.get(itemId) == null) {
+                final Request request = new Request(itemId);
+                mRequests.put(itemId, request);
+                workerHandler.postAtFrontOfQueue(request);
+            }
+        }
+    }
+
+    /** Called by the list when a child is recycled, cancels the loads for image views inside it */
+    void onViewRecycled(View child) {
+        final ArrayList<Target> targets = mTargetsByItemView.remove(child);
+        if (targets == null) {
+            return;
+        }
+
+        for (int i = 0; i < targets.size(); i++) {
+            final Target target = targets.get(i);
+            mTargets.remove(target.mImageView);
+            target.mRequest.mTargets.remove(target);
+            cancelIfUnwanted(target.mRequest);
+        }
+    }
+
+    /**
+     * Gets the view the list adds as a child that the image view is in, or the topmost view it is in while the adapter is still
+     * building it
+     */
+    private static View getItemView(ImageView imageView) {
+        View view = imageView;
+        ViewParent parent = view.getParent();
+
+        while (parent instanceof View && !(parent instanceof HorizontalListView)) {
+            view = (View) parent;
+            parent = view.getParent();
+        }
+
+        return view;
+    }
+
+    private void addTarget(Target target) {
+        mTargets.put(target.mImageView, target);
+        target.mRequest.mTargets.add(target);
+
+        ArrayList<Target> targets = mTargetsByItemView.get(target.mItemView);
+        if (targets == null) {
+            targets = new ArrayList<Target>(2);
+            mTargetsByItemView.put(target.mItemView, targets);
+        }
+
+        targets.add(target);
+    }
+
+    /** Stops the image view waiting for a bitmap, returning what it was waiting for or null if it was not */
+    private Target removeTarget(ImageView imageView) {
+        final Target target = mTargets.remove(imageView);
+        if (target == null) {
+            return null;
+        }
+
+        target.mRequest.mTargets.remove(target);
+        removeFromItemView(target);
+        return target;
+    }
+
+    private void removeFromItemView(Target target) {
+        final ArrayList<Target> targets = mTargetsByItemView.get(target.mItemView);
+        if (targets != null && targets.remove(target) && targets.isEmpty()) {
+            mTargetsByItemView.remove(target.mItemView);
+        }
+    }
+
+    /** Cancels a request if no image view is waiting for it any more */
+    private void cancelIfUnwanted(Request request) {
+        if (!request.mTargets.isEmpty() || mRequests.get(request.mItemId) != request) {
+            return;
+        }
+
+        request.mCancelled = true;
+        mRequests.remove(request.mItemId);
+        mDeferredRequests.remove(request);
+
+        if (mWorkerHandler != null) {
+            mWorkerHandler.removeCallbacks(request);
+        }
+    }
+
+    /**
+     * Called on the UI thread with a decoded bitmap, shows it in every image view still waiting for it. The image views stop
+     * waiting even if there is no bitmap, so they are not held on to.
+     */
+    private void deliver(Request request, Bitmap bitmap) {
+        if (mRequests.get(request.mItemId) == request) {
+            mRequests.remove(request.mItemId);
+        }
+
+        if (bitmap != null) {
+            mCache.put(request.mItemId, bitmap);
+        }
+
+        for (int i = 0; i < request.mTargets.size(); i++) {
+            final Target target = request.mTargets.get(i);
+
+            if (bitmap != null) {
+                target.mImageView.setImageBitmap(bitmap);
+            }
+
+            mTargets.remove(target.mImageView);
+            removeFromItemView(target);
+        }
+
+        request.mTargets.clear();
+    }
+
+    private void stopWorkerThread() {
+        if (mWorkerThread != null) {
+            mWorkerThread.quit();
+            mWorkerThread = null;
+            mWorkerHandler = null;
+        }
+    }
+
+    private Handler getWorkerHandler() {
+        if (mWorkerHandler == null) {
+            mWorkerThread = new HandlerThread("HorizontalListView ImageLoader", Process.THREAD_PRIORITY_BACKGROUND);
+            mWorkerThread.start();
+            mWorkerHandler = new Handler(mWorkerThread.getLooper());
+        }
+
+        return mWorkerHandler;
+    }
+
+    /** An image view waiting for the bitmap of a request */
+    private static final class Target {
+        final ImageView mImageView;
+
+        // The view the list recycles the image view with
+        final View mItemView;
+
+        final Request mRequest;
+
+        Target(ImageView imageView, View itemView, Request request) {
+            mImageView = imageView;
+            mItemView = itemView;
+            mRequest = request;
+        }
+    }
+
+    /** Decodes the bitmap for one item on the background thread */
+    private final class Request implements Runnable {
+        final long mItemId;
+
+        // The image views waiting for the bitmap, only used on the UI thread
+        final ArrayList<Target> mTargets = new ArrayList<Target>(1);
+
+        volatile boolean mCancelled;
+
+        Request(long itemId) {
+            mItemId = itemId;
+        }
+
+        @Override
+        public void run() {
+            if (mCancelled) {
+                return;
+            }
+
+            final Bitmap bitmap = mDecoder.decodeBitmap(mItemId);
+
+            mMainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    if (!mCancelled) {
+                        deliver(Request.this, bitmap);
+                    }
+                }
+            });
+        }
+    }
+}
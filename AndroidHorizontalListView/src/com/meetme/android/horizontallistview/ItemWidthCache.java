@@ -0,0 +1,373 @@
+
+package com.meetme.android.horizontallistview;
+
+import java.util.Arrays;
+
+/**
+ * Remembers the width of each adapter position a {@link HorizontalListView} has measured, in a primitive array indexed by
+ * position. Positions that have not been measured are estimated at the average of the widths that are known, so the total width
+ * of the list can be worked out before every item has been on screen. Widths include the space left by item decorations but not
+ * the dividers.
+ * <p>
+ * The known widths and the number of known widths are also kept in two Fenwick trees, so the offset of any position and the
+ * position at any offset can be found in O(log n), counting unknown widths at the estimate. Measuring an item updates the trees in
+ * O(log n); inserting, removing or moving items rebuilds them in O(n).
+ * <p>
+ * Every width and tree node records the generation it was written in, and clearing starts a new generation instead of filling the
+ * arrays, so forgetting every width is O(1) however long the list is.
+ */
+class ItemWidthCache {
+    /** The width of a position that has not been measured */
+    static final int UNKNOWN_WIDTH = -1;
+
+    private int[] mWidths = new int[0];
+    private int[] mWidthGenerations = new int[0];
+
+    private int mItemCount;
+
+    private int mKnownCount;
+
+    private long mKnownWidthSum;
+
+    // Fenwick trees indexed from 1: node i covers the lowest set bit of i positions ending at position i - 1
+    private long[] mWidthTree = new long[1];
+    private int[] mKnownCountTree = new int[1];
+    private int[] mTreeGenerations = new int[1];
+
+    // Entries written in an earlier generation are unknown widths and empty tree nodes. New arrays are all generation 0.
+    private int mGeneration = 1;
+
+    // Changes every time a known width changes, so callers can tell if what they worked out from the widths is still valid
+    private int mModCount;
+
+    /** Gets the number of positions */
+    int getItemCount() {
+        return mItemCount;
+    }
+
+    /** Gets the number of positions whose width is known */
+    int getKnownCount() {
+        return mKnownCount;
+    }
+
+    /** Gets a number that changes every time the widths change */
+    int getModCount() {
+        return mModCount;
+    }
+
+    /** Forgets every width, and sets the number of positions */
+    void clear(int itemCount) {
+        if (mWidths.length < itemCount) {
+            mWidths = new int[itemCount];
+            mWidthGenerations = new int[itemCount];
+        }
+
+        ensureTreeCapacity(itemCount);
+
+        mItemCount = itemCount;
+        mKnownCount = 0;
+        mKnownWidthSum = 0;
+        mModCount++;
+        nextGeneration();
+    }
+
+    /** Sets the number of positions, forgetting every width if it changed */
+    void setItemCount(int itemCount) {
+        if (itemCount != mItemCount) {
+            clear(itemCount);
+        }
+    }
+
+    /** Gets the width of a position, or UNKNOWN_WIDTH if it has not been measured */
+    int getWidth(int position) {
+        return position >= 0 && position < mItemCount ? widthAt(position) : UNKNOWN_WIDTH;
+    }
+
+    /** Records the measured width of a position */
+    void setWidth(int position, int width) {
+        if (position < 0 || position >= mItemCount) {
+            return;
+        }
+
+        final int oldWidth = widthAt(position);
+        if (oldWidth == width) {
+            return;
+        }
+
+        if (oldWidth == UNKNOWN_WIDTH) {
+            mKnownCount++;
+        } else {
+            mKnownWidthSum -= oldWidth;
+        }
+
+        mWidths[position] = width;
+        mWidthGenerations[position] = mGeneration;
+        mKnownWidthSum += width;
+        mModCount++;
+        updateTrees(position, width - (oldWidth == UNKNOWN_WIDTH ? 0 : oldWidth), oldWidth == UNKNOWN_WIDTH ? 1 : 0);
+    }
+
+    /** Forgets the widths of a range of positions, for items whose content changed */
+    void invalidate(int positionStart, int itemCount) {
+        final int end = Math.min(positionStart + itemCount, mItemCount);
+
+        for (int position = Math.max(positionStart, 0); position < end; position++) {
+            final int width = widthAt(position);
+
+            if (width != UNKNOWN_WIDTH) {
+                mWidths[position] = UNKNOWN_WIDTH;
+                mKnownCount--;
+                mKnownWidthSum -= width;
+                mModCount++;
+                updateTrees(position, -width, -1);
+            }
+        }
+    }
+
+    /**
+     * Gets the width estimated for positions that have not been measured, the average of the known widths, or UNKNOWN_WIDTH if no
+     * width is known
+     */
+    int getEstimatedWidth() {
+        return mKnownCount > 0 ? (int) (mKnownWidthSum / mKnownCount) : UNKNOWN_WIDTH;
+    }
+
+    /** Gets the width of a position if it is known, otherwise the given estimate */
+    int getWidthOrEstimate(int position, int estimate) {
+        final int width = getWidth(position);
+        return width != UNKNOWN_WIDTH ? width : estimate;
+    }
+
+    /** Returns true if the width of every position from positionStart up to, but not including, positionEnd is known */
+    boolean isRangeKnown(int positionStart, int positionEnd) {
+        positionStart = clampPosition(positionStart);
+        positionEnd = clampPosition(positionEnd);
+
+        return positionEnd <= positionStart || knownCountBefore(positionEnd) - knownCountBefore(positionStart) == positionEnd - positionStart;
+    }
+
+    /**
+     * Adds up the widths from positionStart up to, but not including, positionEnd, using the estimate for any that are not known
+     */
+    long sumWidths(int positionStart, int positionEnd, int estimate) {
+        positionStart = clampPosition(positionStart);
+        positionEnd = clampPosition(positionEnd);
+
+        return positionEnd <= positionStart ? 0 : sumWidthsBefore(positionEnd, estimate) - sumWidthsBefore(positionStart, estimate);
+    }
+
+    /**
+     * Gets the offset of the left edge of a position from the left edge of the first one, counting a divider after every item
+     * and the estimate for every width that is not known.
+     */
+    long getOffset(int position, int estimate, int dividerWidth) {
+        position = clampPosition(position);
+        return sumWidthsBefore(position, estimate) + (long) position * dividerWidth;
+    }
+
+    /**
+     * Finds the position whose item, or the divider after it, covers the given offset from the left edge of the first one. The
+     * inverse of {@link #getOffset(int, int, int)}.
+     *
+     * @return The position, limited to the positions there are, or 0 if there are none
+     */
+    int getPositionForOffset(long offset, int estimate, int dividerWidth) {
+        if (mItemCount == 0) {
+            return 0;
+        }
+
+        // Walk down the tree, skipping every node whose positions all end at or before the offset
+        int position = 0;
+        long remaining = offset;
+
+        for (int step = Integer.highestOneBit(mItemCount); step > 0; step >>= 1) {
+            final int node = position + step;
+
+            if (node <= mItemCount) {
+                final long nodeWidth = widthTreeAt(node) + (long) (step - knownCountTreeAt(node)) * estimate + (long) step * dividerWidth;
+
+                if (nodeWidth <= remaining) {
+                    position = node;
+                    remaining -= nodeWidth;
+                }
+            }
+        }
+
+        return Math.min(position, mItemCount - 1);
+    }
+
+    private int clampPosition(int position) {
+        return Math.max(0, Math.min(position, mItemCount));
+    }
+
+    /** Adds up the widths of the positions before the given one, using the estimate for any that are not known */
+    private long sumWidthsBefore(int position, int estimate) {
+        long sum = 0;
+        int knownCount = 0;
+
+        for (int node = position; node > 0; node -= node & -node) {
+            sum += widthTreeAt(node);
+            knownCount += knownCountTreeAt(node);
+        }
+
+        return sum + (long) (position - knownCount) * estimate;
+    }
+
+    /** Counts the known widths of the positions before the given one */
+    private int knownCountBefore(int position) {
+        int knownCount = 0;
+
+        for (int node = position; node > 0; node -= node & -node) {
+            knownCount += knownCountTreeAt(node);
+        }
+
+        return knownCount;
+    }
+
+    /** Adds to the known width and the known count of one position in the trees */
+    private void updateTrees(int position, int widthDelta, int countDelta) {
+        for (int node = position + 1; node <= mItemCount; node += node & -node) {
+            if (mTreeGenerations[node] != mGeneration) {
+                // Left over from before the last clear, so it starts empty
+                mWidthTree[node] = 0;
+                mKnownCountTree[node] = 0;
+                mTreeGenerations[node] = mGeneration;
+            }
+
+            mWidthTree[node] += widthDelta;
+            mKnownCountTree[node] += countDelta;
+        }
+    }
+
+    /** Gets the width of a position that is known to be in range, or UNKNOWN_WIDTH if it was not set since the last clear */
+    private int widthAt(int position) {
+        return mWidthGenerations[position] == mGeneration ? mWidths[position] : UNKNOWN_WIDTH;
+    }
+
+    private long widthTreeAt(int node) {
+        return mTreeGenerations[node] == mGeneration ? mWidthTree[node] : 0;
+    }
+
+    private int knownCountTreeAt(int node) {
+        return mTreeGenerations[node] == mGeneration ? mKnownCountTree[node] : 0;
+    }
+
+    /** Starts a new generation, which makes every width unknown and every tree node empty */
+    private void nextGeneration() {
+        mGeneration++;
+
+        if (mGeneration == 0) {
+            // Wrapped around, so entries from generations long gone could look current again
+            Arrays.fill(mWidthGenerations, 0);
+            Arrays.fill(mTreeGenerations, 0);
+            mGeneration = 1;
+        }
+    }
+
+    /** Makes the trees big enough for the given number of positions, and no bigger */
+    private void ensureTreeCapacity(int itemCount) {
+        if (mWidthTree.length < itemCount + 1) {
+            mWidthTree = new long[itemCount + 1];
+            mKnownCountTree = new int[itemCount + 1];
+            mTreeGenerations = new int[itemCount + 1];
+        }
+    }
+
+    /** Writes UNKNOWN_WIDTH over the widths left over from before the last clear, so they can be moved around as they are */
+    private void resolveWidths() {
+        for (int position = 0; position < mItemCount; position++) {
+            if (mWidthGenerations[position] != mGeneration) {
+                mWidths[position] = UNKNOWN_WIDTH;
+                mWidthGenerations[position] = mGeneration;
+            }
+        }
+    }
+
+    /** Builds the trees again from the widths, in O(n) */
+    private void rebuildTrees() {
+        ensureTreeCapacity(mItemCount);
+
+        for (int node = 1; node <= mItemCount; node++) {
+            final int width = widthAt(node - 1);
+            mWidthTree[node] = width != UNKNOWN_WIDTH ? width : 0;
+            mKnownCountTree[node] = width != UNKNOWN_WIDTH ? 1 : 0;
+            mTreeGenerations[node] = mGeneration;
+        }
+
+        // Push each node's total up to the node covering it
+        for (int node = 1; node <= mItemCount; node++) {
+            final int parent = node + (node & -node);
+
+            if (parent <= mItemCount) {
+                mWidthTree[parent] += mWidthTree[node];
+                mKnownCountTree[parent] += mKnownCountTree[node];
+            }
+        }
+    }
+
+    /** Makes room for items inserted into the adapter, whose widths are not known */
+    void onItemRangeInserted(int positionStart, int itemCount) {
+        if (positionStart < 0 || positionStart > mItemCount || itemCount <= 0) {
+            clear(mItemCount + Math.max(itemCount, 0));
+            return;
+        }
+
+        final int newCount = mItemCount + itemCount;
+        if (mWidths.length < newCount) {
+            // Arrays.copyOf is not available before API 9
+            final int[] widths = new int[Math.max(newCount, mWidths.length * 2)];
+            final int[] generations = new int[widths.length];
+            System.arraycopy(mWidths, 0, widths, 0, mItemCount);
+            System.arraycopy(mWidthGenerations, 0, generations, 0, mItemCount);
+            mWidths = widths;
+            mWidthGenerations = generations;
+        }
+
+        resolveWidths();
+        System.arraycopy(mWidths, positionStart, mWidths, positionStart + itemCount, mItemCount - positionStart);
+        Arrays.fill(mWidths, positionStart, positionStart + itemCount, UNKNOWN_WIDTH);
+        Arrays.fill(mWidthGenerations, mItemCount, newCount, mGeneration);
+        mItemCount = newCount;
+        mModCount++;
+        rebuildTrees();
+    }
+
+    /** Drops the widths of items removed from the adapter */
+    void onItemRangeRemoved(int positionStart, int itemCount) {
+        if (positionStart < 0 || itemCount <= 0 || positionStart + itemCount > mItemCount) {
+            clear(Math.max(mItemCount - Math.max(itemCount, 0), 0));
+            return;
+        }
+
+        invalidate(positionStart, itemCount);
+        resolveWidths();
+
+        final int end = positionStart + itemCount;
+        System.arraycopy(mWidths, end, mWidths, positionStart, mItemCount - end);
+        Arrays.fill(mWidths, mItemCount - itemCount, mItemCount, UNKNOWN_WIDTH);
+        mItemCount -= itemCount;
+        mModCount++;
+        rebuildTrees();
+    }
+
+    /** Moves the width of an item that moved in the adapter */
+    void onItemMoved(int fromPosition, int toPosition) {
+        if (fromPosition < 0 || fromPosition >= mItemCount || toPosition < 0 || toPosition >= mItemCount) {
+            clear(mItemCount);
+            return;
+        }
+
+        resolveWidths();
+
+        final int width = mWidths[fromPosition];
+        if (fromPosition < toPosition) {
+            System.arraycopy(mWidths, fromPosition + 1, mWidths, fromPosition, toPosition - fromPosition);
+        } else {
+            System.arraycopy(mWidths, toPosition, mWidths, toPosition + 1, fromPosition - toPosition);
+        }
+
+        mWidths[toPosition] = width;
+        mModCount++;
+        rebuildTrees();
+    }
+}
@@ -0,0 +1,113 @@
+
+package com.meetme.android.horizontallistview;
+
+/**
+ * Counts the work a {@link HorizontalListView} does while laying out its children. The same object is used either for a single
+ * layout pass or for the running totals of every pass since the metrics were enabled or last reset. A layout pass is one call to
+ * onLayout, or one frame of scrolling that adds or removes children, including any layout it redoes.
+ *
+ * @see HorizontalListView#setOnLayoutMetricsListener(HorizontalListView.OnLayoutMetricsListener)
+ */
+public class LayoutMetrics {
+    int mLayoutPassCount;
+    int mGetViewCount;
+    int mScrapHitCount;
+    int mScrapMissCount;
+    int mRemovedChildCount;
+    int mRecursiveLayoutCount;
+    long mGetViewTimeNanos;
+    long mMeasureTimeNanos;
+    long mPositionTimeNanos;
+
+    /** Gets the number of layout passes counted, always 1 for a single pass */
+    public int getLayoutPassCount() {
+        return mLayoutPassCount;
+    }
+
+    /** Gets the number of times the adapter's getView was called */
+    public int getGetViewCount() {
+        return mGetViewCount;
+    }
+
+    /** Gets the number of times a recycled view was found to pass to getView */
+    public int getScrapHitCount() {
+        return mScrapHitCount;
+    }
+
+    /** Gets the number of times there was no recycled view to pass to getView */
+    public int getScrapMissCount() {
+        return mScrapMissCount;
+    }
+
+    /** Gets the number of children removed because they scrolled off the screen */
+    public int getRemovedChildCount() {
+        return mRemovedChildCount;
+    }
+
+    /** Gets the number of times the layout was redone because the maximum scroll position became known */
+    public int getRecursiveLayoutCount() {
+        return mRecursiveLayoutCount;
+    }
+
+    /** Gets the time spent in the adapter's getView, in nanoseconds */
+    public long getGetViewTimeNanos() {
+        return mGetViewTimeNanos;
+    }
+
+    /** Gets the time spent measuring children, in nanoseconds */
+    public long getMeasureTimeNanos() {
+        return mMeasureTimeNanos;
+    }
+
+    /** Gets the time spent positioning children, in nanoseconds */
+    public long getPositionTimeNanos() {
+        return mPositionTimeNanos;
+    }
+
+    /** Sets every count and time to zero */
+    public void reset() {
+        mLayoutPassCount = 0;
+        mGetViewCount = 0;
+        mScrapHitCount = 0;
+        mScrapMissCount = 0;
+        mRemovedChildCount = 0;
+        mRecursiveLayoutCount = 0;
+        mGetViewTimeNanos = 0;
+        mMeasureTimeNanos = 0;
+        mPositionTimeNanos = 0;
+    }
+
+    /** Copies every count and time from other */
+    public void set(LayoutMetrics other) {
+        mLayoutPassCount = other.mLayoutPassCount;
+        mGetViewCount = other.mGetViewCount;
+        mScrapHitCount = other.mScrapHitCount;
+        mScrapMissCount = other.mScrapMissCount;
+        mRemovedChildCount = other.mRemovedChildCount;
+        mRecursiveLayoutCount = other.mRecursiveLayoutCount;
+        mGetViewTimeNanos = other.mGetViewTimeNanos;
+        mMeasureTimeNanos = other.mMeasureTimeNanos;
+        mPositionTimeNanos = other.mPositionTimeNanos;
+    }
+
+    /** Adds every count and time from other to this */
+    public void add(LayoutMetrics other) {
+        mLayoutPassCount += other.mLayoutPassCount;
+        mGetViewCount += other.mGetViewCount;
+        mScrapHitCount += other.mScrapHitCount;
+        mScrapMissCount += other.mScrapMissCount;
+        mRemovedChildCount += other.mRemovedChildCount;
+        mRecursiveLayoutCount += other.mRecursiveLayoutCount;
+        mGetViewTimeNanos += other.mGetViewTimeNanos;
+        mMeasureTimeNanos += other.mMeasureTimeNanos;
+        mPositionTimeNanos += other.mPositionTimeNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "LayoutMetrics{passes=" + mLayoutPassCount + ", getView=" + mGetViewCount + ", scrapHits=" + mScrapHitCount
+                + ", scrapMisses=" + mScrapMissCount + ", removed=" + mRemovedChildCount + ", recursiveLayouts="
+                + mRecursiveLayoutCount + ", getViewNanos=" + mGetViewTimeNanos + ", measureNanos=" + mMeasureTimeNanos
+                + ", positionNanos=" + mPositionTimeNanos + "}";
+    }
+}
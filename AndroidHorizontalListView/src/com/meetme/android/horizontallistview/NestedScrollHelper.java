@@ -0,0 +1,235 @@
+
+package com.meetme.android.horizontallistview;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.view.View;
+import android.view.ViewParent;
+
+import com.meetme.android.horizontallistview.HorizontalListView.NestedScrollParent;
+
+/**
+ * Passes the scrolls and flings of a {@link HorizontalListView} to the nearest ancestor that implements
+ * {@link NestedScrollParent} and accepts them. Follows the same steps as the nested scrolling of later platform versions: start,
+ * pre-scroll, scroll, pre-fling, fling and stop, so a parent can take its share of each movement before or after the list. On
+ * API 21 and above, a gesture that no such ancestor accepts is passed to the platform's nested scrolling instead, which the list
+ * takes part in when {@link View#setNestedScrollingEnabled(boolean)} is set on it.
+ */
+class NestedScrollHelper {
+    private final View mView;
+
+    private NestedScrollParent mParent;
+
+    private boolean mEnabled = true;
+
+    private final int[] mLocationInWindow = new int[2];
+
+    NestedScrollHelper(View view) {
+        mView = view;
+    }
+
+    /** Enables or disables passing scrolls to a {@link NestedScrollParent}, stopping the current nested scroll when disabled */
+    void setEnabled(boolean enabled) {
+        if (!enabled) {
+            stopParent();
+        }
+
+        mEnabled = enabled;
+    }
+
+    boolean isEnabled() {
+        return mEnabled;
+    }
+
+    /** Returns true if a {@link NestedScrollParent} accepted the current nested scroll */
+    boolean hasNestedScrollParent() {
+        return mParent != null;
+    }
+
+    /**
+     * Looks for an ancestor that accepts a nested scroll along the given axes.
+     *
+     * @param axes A combination of {@link NestedScrollParent#SCROLL_AXIS_HORIZONTAL} and
+     *            {@link NestedScrollParent#SCROLL_AXIS_VERTICAL}
+     * @return True if a parent accepted it, or had already accepted it
+     */
+    boolean startNestedScroll(int axes) {
+        if (mParent != null) {
+            return true;
+        }
+
+        if (mEnabled) {
+            View child = mView;
+            ViewParent parent = mView.getParent();
+
+            while (parent != null) {
+                if (parent instanceof NestedScrollParent && ((NestedScrollParent) parent).onStartNestedScroll(child, mView, axes)) {
+                    mParent = (NestedScrollParent) parent;
+                    mParent.onNestedScrollAccepted(child, mView, axes);
+                    return true;
+                }
+
+                if (parent instanceof View) {
+                    child = (View) parent;
+                }
+
+                parent = parent.getParent();
+            }
+        }
+
+        // The axes have the same values as the platform's
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP && LollipopPlus.startNestedScroll(mView, axes);
+    }
+
+    /** Ends the current nested scroll */
+    void stopNestedScroll() {
+        stopParent();
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            LollipopPlus.stopNestedScroll(mView);
+        }
+    }
+
+    private void stopParent() {
+        if (mParent != null) {
+            mParent.onStopNestedScroll(mView);
+            mParent = null;
+        }
+    }
+
+    /**
+     * Offers a scroll to the parent before the list scrolls.
+     *
+     * @param consumed Set to the distance the parent consumed along each axis
+     * @param offsetInWindow Set to the distance the list moved in its window while the parent scrolled, or null
+     * @return True if the parent consumed any of it
+     */
+    boolean dispatchNestedPreScroll(int dx, int dy, int[] consumed, int[] offsetInWindow) {
+        if (mParent == null && Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            return LollipopPlus.dispatchNestedPreScroll(mView, dx, dy, consumed, offsetInWindow);
+        }
+
+        if (mParent == null || (dx == 0 && dy == 0)) {
+            clearOffset(offsetInWindow);
+            return false;
+        }
+
+        final int startX = saveLocation(offsetInWindow);
+        final int startY = mLocationInWindow[1];
+
+        consumed[0] = 0;
+        consumed[1] = 0;
+        mParent.onNestedPreScroll(mView, dx, dy, consumed);
+
+        updateOffset(offsetInWindow, startX, startY);
+        return consumed[0] != 0 || consumed[1] != 0;
+    }
+
+    /**
+     * Tells the parent how much of a scroll the list consumed, so it can scroll by the rest.
+     *
+     * @param offsetInWindow Set to the distance the list moved in its window while the parent scrolled, or null
+     * @return True if there is a parent to tell
+     */
+    boolean dispatchNestedScroll(int dxConsumed, int dyConsumed, int dxUnconsumed, int dyUnconsumed, int[] offsetInWindow) {
+        if (mParent == null && Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            return LollipopPlus.dispatchNestedScroll(mView, dxConsumed, dyConsumed, dxUnconsumed, dyUnconsumed, offsetInWindow);
+        }
+
+        if (mParent == null) {
+            clearOffset(offsetInWindow);
+            return false;
+        }
+
+        final int startX = saveLocation(offsetInWindow);
+        final int startY = mLocationInWindow[1];
+
+        mParent.onNestedScroll(mView, dxConsumed, dyConsumed, dxUnconsumed, dyUnconsumed);
+
+        updateOffset(offsetInWindow, startX, startY);
+        return true;
+    }
+
+    /** Offers a fling to the parent before the list flings, returning true if the parent took it */
+    boolean dispatchNestedPreFling(float velocityX, float velocityY) {
+        if (mParent == null && Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            return LollipopPlus.dispatchNestedPreFling(mView, velocityX, velocityY);
+        }
+
+        return mParent != null && mParent.onNestedPreFling(mView, velocityX, velocityY);
+    }
+
+    /** Tells the parent about a fling, and whether the list is flinging itself, returning true if the parent reacted to it */
+    boolean dispatchNestedFling(float velocityX, float velocityY, boolean consumed) {
+        if (mParent == null && Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            return LollipopPlus.dispatchNestedFling(mView, velocityX, velocityY, consumed);
+        }
+
+        return mParent != null && mParent.onNestedFling(mView, velocityX, velocityY, consumed);
+    }
+
+    private int saveLocation(int[] offsetInWindow) {
+        if (offsetInWindow == null) {
+            return 0;
+        }
+
+        mView.getLocationInWindow(mLocationInWindow);
+        return mLocationInWindow[0];
+    }
+
+    private void updateOffset(int[] offsetInWindow, int startX, int startY) {
+        if (offsetInWindow != null) {
+            mView.getLocationInWindow(mLocationInWindow);
+            offsetInWindow[0] = mLocationInWindow[0] - startX;
+            offsetInWindow[1] = mLocationInWindow[1] - startY;
+        }
+    }
+
+    private static void clearOffset(int[] offsetInWindow) {
+        if (offsetInWindow != null) {
+            offsetInWindow[0] = 0;
+            offsetInWindow[1] = 0;
+        }
+    }
+
+    @TargetApi(21)
+    /** Wrapper class to protect access to API version 21 and above features */
+    private static final class LollipopPlus {
+        static {
+            if (Build.VERSION.SDK_INT < Build.VERSION_CODES.LOLLIPOP) {
+                throw new RuntimeException("Should not get to LollipopPlus class unless sdk is >= 21!");
+            }
+        }
+
+        /** Starts a platform nested scroll for the provided view, if nested scrolling is enabled on it */
+        public static boolean startNestedScroll(View view, int axes) {
+            return view.startNestedScroll(axes);
+        }
+
+        /** Stops the provided view's platform nested scroll */
+        public static void stopNestedScroll(View view) {
+            view.stopNestedScroll();
+        }
+
+        /** Offers a scroll to the provided view's platform nested scrolling parent */
+        public static boolean dispatchNestedPreScroll(View view, int dx, int dy, int[] consumed, int[] offsetInWindow) {
+            return view.dispatchNestedPreScroll(dx, dy, consumed, offsetInWindow);
+        }
+
+        /** Passes the rest of a scroll to the provided view's platform nested scrolling parent */
+        public static boolean dispatchNestedScroll(View view, int dxConsumed, int dyConsumed, int dxUnconsumed, int dyUnconsumed,
+                int[] offsetInWindow) {
+            return view.dispatchNestedScroll(dxConsumed, dyConsumed, dxUnconsumed, dyUnconsumed, offsetInWindow);
+        }
+
+        /** Offers a fling to the provided view's platform nested scrolling parent */
+        public static boolean dispatchNestedPreFling(View view, float velocityX, float velocityY) {
+            return view.dispatchNestedPreFling(velocityX, velocityY);
+        }
+
+        /** Tells the provided view's platform nested scrolling parent about a fling */
+        public static boolean dispatchNestedFling(View view, float velocityX, float velocityY, boolean consumed) {
+            return view.dispatchNestedFling(velocityX, velocityY, consumed);
+        }
+    }
+}
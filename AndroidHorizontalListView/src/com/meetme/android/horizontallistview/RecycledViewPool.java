@@ -0,0 +1,230 @@
+
+package com.meetme.android.horizontallistview;
+
+import android.content.ComponentCallbacks2;
+import android.view.View;
+
+/**
+ * Holds the views a {@link HorizontalListView} has removed so they can be handed back to the adapter as convert views. There is
+ * one bounded queue per view type, backed by an array so that recycling a view does not allocate. Once a queue is full any more
+ * views of that type are dropped.
+ */
+public class RecycledViewPool {
+    /** The number of views of each type that are kept unless {@link #setMaxRecycledViews(int, int)} says otherwise */
+    public static final int DEFAULT_MAX_RECYCLED_VIEWS = 12;
+
+    private ScrapQueue[] mScrapQueues = new ScrapQueue[0];
+
+    private final int mDefaultMaxRecycledViews;
+
+    private int mHitCount;
+
+    private int mMissCount;
+
+    public RecycledViewPool() {
+        this(DEFAULT_MAX_RECYCLED_VIEWS);
+    }
+
+    /**
+     * @param defaultMaxRecycledViews The number of views of each type to keep unless {@link #setMaxRecycledViews(int, int)} is
+     * called for that type
+     */
+    public RecycledViewPool(int defaultMaxRecycledViews) {
+        mDefaultMaxRecycledViews = defaultMaxRecycledViews;
+    }
+
+    /**
+     * Makes sure there is a queue for each view type from 0 to viewTypeCount - 1. Existing queues and the views in them are kept.
+     */
+    public void setViewTypeCount(int viewTypeCount) {
+        if (viewTypeCount <= mScrapQueues.length) {
+            return;
+        }
+
+        final ScrapQueue[] scrapQueues = new ScrapQueue[viewTypeCount];
+        System.arraycopy(mScrapQueues, 0, scrapQueues, 0, mScrapQueues.length);
+
+        for (int i = mScrapQueues.length; i < viewTypeCount; i++) {
+            scrapQueues[i] = new ScrapQueue(mDefaultMaxRecycledViews);
+        }
+
+        mScrapQueues = scrapQueues;
+    }
+
+    /** Gets the number of view types this pool has queues for */
+    public int getViewTypeCount() {
+        return mScrapQueues.length;
+    }
+
+    /**
+     * Sets the most views of the given type that are kept. If more are already held, the extra ones are dropped.
+     *
+     * @param viewType The view type, as returned by {@code Adapter#getItemViewType(int)}
+     * @param max The most views of that type to keep
+     */
+    public void setMaxRecycledViews(int viewType, int max) {
+        setViewTypeCount(viewType + 1);
+        mScrapQueues[viewType].setMax(max);
+    }
+
+    /** Returns true if views of the given type can be held by this pool */
+    public boolean isViewTypeValid(int viewType) {
+        return viewType >= 0 && viewType < mScrapQueues.length;
+    }
+
+    /**
+     * Takes a view of the given type out of the pool.
+     *
+     * @return The view, or null if there is none of that type
+     */
+    public View getRecycledView(int viewType) {
+        final View view = isViewTypeValid(viewType) ? mScrapQueues[viewType].poll() : null;
+
+        if (view != null) {
+            mHitCount++;
+        } else {
+            mMissCount++;
+        }
+
+        return view;
+    }
+
+    /**
+     * Puts a view into the pool under the given type.
+     *
+     * @return true if the view was kept, false if the type is not valid or the queue for it is full
+     */
+    public boolean putRecycledView(int viewType, View view) {
+        return isViewTypeValid(viewType) && mScrapQueues[viewType].offer(view);
+    }
+
+    /** Gets the number of views of the given type currently held */
+    public int getRecycledViewCount(int viewType) {
+        return isViewTypeValid(viewType) ? mScrapQueues[viewType].mSize : 0;
+    }
+
+    /** Gets the number of views of every type currently held */
+    public int getRecycledViewCount() {
+        int count = 0;
+
+        for (ScrapQueue scrapQueue : mScrapQueues) {
+            count += scrapQueue.mSize;
+        }
+
+        return count;
+    }
+
+    /** Gets the number of times {@link #getRecycledView(int)} returned a view */
+    public int getHitCount() {
+        return mHitCount;
+    }
+
+    /** Gets the number of times {@link #getRecycledView(int)} had no view to return */
+    public int getMissCount() {
+        return mMissCount;
+    }
+
+    /** Resets the hit and miss counts to zero */
+    public void resetCounts() {
+        mHitCount = 0;
+        mMissCount = 0;
+    }
+
+    /** Drops views until no more than maxPerViewType views of each type are held */
+    public void trimToSize(int maxPerViewType) {
+        for (ScrapQueue scrapQueue : mScrapQueues) {
+            scrapQueue.trimToSize(maxPerViewType);
+        }
+    }
+
+    /** Drops every view held */
+    public void clear() {
+        trimToSize(0);
+    }
+
+    /**
+     * Releases views in response to memory pressure.
+     *
+     * @param level The level passed to {@code ComponentCallbacks2#onTrimMemory(int)}
+     */
+    public void onTrimMemory(int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+            clear();
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            // Keep half of what each queue may hold
+            for (ScrapQueue scrapQueue : mScrapQueues) {
+                scrapQueue.trimToSize(scrapQueue.mMax / 2);
+            }
+        }
+    }
+
+    /** Releases every view held, in response to {@code ComponentCallbacks#onLowMemory()} */
+    public void onLowMemory() {
+        clear();
+    }
+
+    /** A bounded first in first out queue of views, stored in a circular array */
+    private static final class ScrapQueue {
+        private View[] mViews;
+        private int mHead;
+        private int mSize;
+        private int mMax;
+
+        ScrapQueue(int max) {
+            mMax = max;
+        }
+
+        boolean offer(View view) {
+            if (mSize >= mMax) {
+                return false;
+            }
+
+            // The array is only created once a view is recycled, and is never bigger than the maximum
+            if (mViews == null || mViews.length < mMax) {
+                grow();
+            }
+
+            mViews[(mHead + mSize) % mViews.length] = view;
+            mSize++;
+            return true;
+        }
+
+        View poll() {
+            if (mSize == 0) {
+                return null;
+            }
+
+            final View view = mViews[mHead];
+            mViews[mHead] = null;
+            mHead = (mHead + 1) % mViews.length;
+            mSize--;
+            return view;
+        }
+
+        void setMax(int max) {
+            mMax = max;
+            trimToSize(max);
+        }
+
+        void trimToSize(int size) {
+            while (mSize > size && mSize > 0) {
+                // Drop from the tail so the views that have waited longest are reused first
+                final int tail = (mHead + mSize - 1) % mViews.length;
+                mViews[tail] = null;
+                mSize--;
+            }
+        }
+
+        /** Moves the queued views into an array of the maximum size, unwrapping them to start at index 0 */
+        private void grow() {
+            final View[] views = new View[mMax];
+
+            for (int i = 0; i < mSize; i++) {
+                views[i] = mViews[(mHead + i) % mViews.length];
+            }
+
+            mViews = views;
+            mHead = 0;
+        }
+    }
+}
@@ -1,12 +1,18 @@
 package com.meetme.android.horizontallistview.sample;
 
 import android.app.Activity;
+import android.content.Intent;
 import android.graphics.Color;
 import android.os.Bundle;
 import android.view.Menu;
+import android.view.MenuItem;
+import android.view.View;
+import android.widget.AdapterView;
 import android.widget.ArrayAdapter;
+import android.widget.Toast;
 
 import com.meetme.android.horizontallistview.HorizontalListView;
+import com.meetme.android.horizontallistview.RecycledViewPool;
 
 public class MainActivity extends Activity {
 
@@ -84,9 +90,22 @@ public class MainActivity extends Activity {
         // Make an array adapter using the built in android layout to render a list of strings
         CustomArrayAdapter adapter = new CustomArrayAdapter(this, mCustomData);
 
+        // Both lists show the same views, so let them reuse each other's recycled views
+        RecycledViewPool recycledViewPool = new RecycledViewPool();
+        mHlvCustomList.setRecycledViewPool(recycledViewPool);
+        mHlvCustomListWithDividerAndFadingEdge.setRecycledViewPool(recycledViewPool);
+
         // Assign adapter to HorizontalListView
         mHlvCustomList.setAdapter(adapter);
         mHlvCustomListWithDividerAndFadingEdge.setAdapter(adapter);
+
+        // Tapping an item names it. A vertical swipe that starts on an item scrolls the page and must not name it.
+        mHlvCustomList.setOnItemClickListener(new AdapterView.OnItemClickListener() {
+            @Override
+            public void onItemClick(AdapterView<?> parent, View view, int position, long id) {
+                Toast.makeText(MainActivity.this, mCustomData[position].getText(), Toast.LENGTH_SHORT).show();
+            }
+        });
     }
 
     @Override
@@ -95,4 +114,14 @@ public class MainActivity extends Activity {
         getMenuInflater().inflate(R.menu.activity_main, menu);
         return true;
     }
+
+    @Override
+    public boolean onOptionsItemSelected(MenuItem item) {
+        if (item.getItemId() == R.id.menu_scroll_benchmark) {
+            startActivity(new Intent(this, ScrollBenchmarkActivity.class));
+            return true;
+        }
+
+        return super.onOptionsItemSelected(item);
+    }
 }
@@ -0,0 +1,394 @@
+package com.meetme.android.horizontallistview.sample;
+
+import android.app.Activity;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Bundle;
+import android.os.Debug;
+import android.os.Parcelable;
+import android.os.SystemClock;
+import android.support.v4.view.ViewCompat;
+import android.util.Log;
+import android.view.Menu;
+import android.view.MenuItem;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.BaseAdapter;
+import android.widget.LinearLayout;
+import android.widget.ScrollView;
+import android.widget.TextView;
+
+import com.meetme.android.horizontallistview.HorizontalListView;
+import com.meetme.android.horizontallistview.HorizontalListView.OnScrollStateChangedListener;
+import com.meetme.android.horizontallistview.LayoutMetrics;
+
+import java.util.Locale;
+
+/**
+ * Scrolls a HorizontalListView through a fixed script, one step per animation frame, and reports what each frame cost. The
+ * script drags, flings, changes the data, saves and restores the state and jumps to the end of the list. It is run with adapters
+ * of 100, 10,000 and 1,000,000 items, each with fixed and with variable item widths. The results can be saved as a baseline that
+ * later runs are compared against.
+ */
+public class ScrollBenchmarkActivity extends Activity implements HorizontalListView.OnLayoutMetricsListener,
+        OnScrollStateChangedListener {
+    private static final String TAG = "ScrollBenchmark";
+
+    private static final String PREFS_BASELINE = "scroll_benchmark_baseline";
+
+    private static final int[] ITEM_COUNTS = new int[] { 100, 10000, 1000000 };
+
+    // The script, in frames
+    private static final int DRAG_FRAMES = 30;
+    private static final int DRAG_STEP = 30;
+    private static final int FLING_FRAMES = 6;
+    private static final int FLING_STEP = 150;
+    private static final int SETTLE_FRAMES = 10;
+    private static final int MAX_FLING_FRAMES = 300;
+
+    private static final int FRAME_MILLIS = 16;
+
+    private enum Phase {
+        DRAG, FLING, WAIT_FOR_IDLE, DATA_CHANGE, RESTORE, JUMP, DONE
+    }
+
+    private HorizontalListView mList;
+    private TextView mReportView;
+    private final StringBuilder mReport = new StringBuilder();
+
+    private BenchmarkAdapter mAdapter;
+    private int mScenario;
+    private Phase mPhase;
+    private int mPhaseFrame;
+    private int mFrameCount;
+    private long mStartNanos;
+    private long mDownTime;
+    private float mTouchX;
+    private boolean mIdle = true;
+
+    private long mWorstPassNanos;
+    private final LayoutMetrics mMetrics = new LayoutMetrics();
+
+    // Results of the current run, saved as the baseline on request
+    private final float[] mResults = new float[ITEM_COUNTS.length * 2 * Result.COUNT];
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+
+        mList = new HorizontalListView(this, null);
+        mList.setOnLayoutMetricsListener(this);
+        mList.setOnScrollStateChangedListener(this);
+
+        mReportView = new TextView(this);
+        final ScrollView reportScroller = new ScrollView(this);
+        reportScroller.addView(mReportView);
+
+        final LinearLayout layout = new LinearLayout(this);
+        layout.setOrientation(LinearLayout.VERTICAL);
+        layout.addView(mList, new LinearLayout.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, dpToPx(100)));
+        layout.addView(reportScroller, new LinearLayout.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, 0, 1));
+        setContentView(layout);
+
+        startScenario(0);
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        mPhase = Phase.DONE;
+        mList.removeCallbacks(mFrameRunnable);
+    }
+
+    @Override
+    public boolean onCreateOptionsMenu(Menu menu) {
+        getMenuInflater().inflate(R.menu.activity_scroll_benchmark, menu);
+        return true;
+    }
+
+    @Override
+    public boolean onOptionsItemSelected(MenuItem item) {
+        if (item.getItemId() == R.id.menu_save_baseline) {
+            saveBaseline();
+            return true;
+        } else if (item.getItemId() == R.id.menu_run_again) {
+            mReport.setLength(0);
+            startScenario(0);
+            return true;
+        }
+
+        return super.onOptionsItemSelected(item);
+    }
+
+    @Override
+    public void onLayoutPass(LayoutMetrics pass, LayoutMetrics totals) {
+        final long passNanos = pass.getGetViewTimeNanos() + pass.getMeasureTimeNanos() + pass.getPositionTimeNanos();
+        mWorstPassNanos = Math.max(mWorstPassNanos, passNanos);
+    }
+
+    @Override
+    public void onScrollStateChanged(ScrollState scrollState) {
+        mIdle = scrollState == ScrollState.SCROLL_STATE_IDLE;
+    }
+
+    private void startScenario(int scenario) {
+        mScenario = scenario;
+        mAdapter = new BenchmarkAdapter(this, ITEM_COUNTS[scenario / 2], scenario % 2 == 0);
+
+        mList.setFixedItemWidth(mAdapter.mFixedWidths ? mAdapter.getItemWidth(0) : 0);
+        mList.setAdapter(mAdapter);
+        mList.resetLayoutMetrics();
+
+        mWorstPassNanos = 0;
+        mFrameCount = 0;
+        setPhase(Phase.DRAG);
+
+        Debug.startAllocCounting();
+        Debug.resetThreadAllocCount();
+        mStartNanos = System.nanoTime();
+
+        ViewCompat.postOnAnimation(mList, mFrameRunnable);
+    }
+
+    private void setPhase(Phase phase) {
+        mPhase = phase;
+        mPhaseFrame = 0;
+    }
+
+    private final Runnable mFrameRunnable = new Runnable() {
+        @Override
+        public void run() {
+            if (mPhase == Phase.DONE) {
+                return;
+            }
+
+            final Phase phase = mPhase;
+            step();
+            mFrameCount++;
+
+            // A new phase starts counting from its first frame
+            if (mPhase == phase) {
+                mPhaseFrame++;
+            }
+
+            if (mPhase == Phase.DONE) {
+                finishScenario();
+            } else {
+                ViewCompat.postOnAnimation(mList, this);
+            }
+        }
+    };
+
+    /** Performs the step of the script for the current frame */
+    private void step() {
+        switch (mPhase) {
+            case DRAG:
+                if (drag(mPhaseFrame, DRAG_FRAMES, DRAG_STEP)) {
+                    setPhase(Phase.FLING);
+                }
+                break;
+
+            case FLING:
+                if (drag(mPhaseFrame, FLING_FRAMES, FLING_STEP)) {
+                    setPhase(Phase.WAIT_FOR_IDLE);
+                }
+                break;
+
+            case WAIT_FOR_IDLE:
+                if (mIdle || mPhaseFrame >= MAX_FLING_FRAMES) {
+                    setPhase(Phase.DATA_CHANGE);
+                }
+                break;
+
+            case DATA_CHANGE:
+                if (mPhaseFrame == 0) {
+                    mAdapter.notifyDataSetChanged();
+                } else if (mPhaseFrame >= SETTLE_FRAMES) {
+                    setPhase(Phase.RESTORE);
+                }
+                break;
+
+            case RESTORE:
+                if (mPhaseFrame == 0) {
+                    // The same as a rotation: save, rebuild from scratch and restore
+                    final Parcelable state = mList.onSaveInstanceState();
+                    mList.setAdapter(mAdapter);
+                    mList.onRestoreInstanceState(state);
+                } else if (mPhaseFrame >= SETTLE_FRAMES) {
+                    setPhase(Phase.JUMP);
+                }
+                break;
+
+            case JUMP:
+                if (mPhaseFrame == 0) {
+                    mList.scrollToPosition(mAdapter.getCount() - 1, 0);
+                } else if (mPhaseFrame >= SETTLE_FRAMES) {
+                    setPhase(Phase.DONE);
+                }
+                break;
+
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Sends one touch event of a drag to the left that lasts the given number of frames.
+     *
+     * @return true once the drag has ended
+     */
+    private boolean drag(int frame, int frames, int step) {
+        final int action;
+        if (frame == 0) {
+            action = MotionEvent.ACTION_DOWN;
+            mDownTime = SystemClock.uptimeMillis();
+            mTouchX = mList.getWidth() * 0.75f;
+        } else if (frame < frames) {
+            action = MotionEvent.ACTION_MOVE;
+            mTouchX -= step;
+        } else {
+            action = MotionEvent.ACTION_UP;
+        }
+
+        // Space the events a frame apart so the velocity does not depend on how quickly frames arrive
+        final long eventTime = mDownTime + frame * FRAME_MILLIS;
+        final MotionEvent event = MotionEvent.obtain(mDownTime, eventTime, action, mTouchX, mList.getHeight() / 2, 0);
+        mList.dispatchTouchEvent(event);
+        event.recycle();
+
+        return action == MotionEvent.ACTION_UP;
+    }
+
+    private void finishScenario() {
+        final long wallNanos = System.nanoTime() - mStartNanos;
+        final int allocations = Debug.getThreadAllocCount();
+        Debug.stopAllocCounting();
+
+        mList.getLayoutMetrics(mMetrics);
+
+        final float frames = Math.max(1, mFrameCount);
+        final int offset = mScenario * Result.COUNT;
+        mResults[offset + Result.GET_VIEW] = mMetrics.getGetViewCount() / frames;
+        mResults[offset + Result.LAYOUT_PASSES] = mMetrics.getLayoutPassCount() / frames;
+        mResults[offset + Result.ALLOCATIONS] = allocations / frames;
+        mResults[offset + Result.FRAME_MILLIS] = wallNanos / frames / 1000000f;
+
+        appendResults();
+
+        if (mScenario + 1 < ITEM_COUNTS.length * 2) {
+            startScenario(mScenario + 1);
+        }
+    }
+
+    private void appendResults() {
+        final SharedPreferences baseline = getSharedPreferences(PREFS_BASELINE, Context.MODE_PRIVATE);
+        final String name = getScenarioName(mScenario);
+        final int offset = mScenario * Result.COUNT;
+
+        mReport.append(name).append(" (").append(mFrameCount).append(" frames, worst pass ")
+                .append(String.format(Locale.US, "%.2f", mWorstPassNanos / 1000000f)).append(" ms)\n");
+
+        for (int i = 0; i < Result.COUNT; i++) {
+            final float value = mResults[offset + i];
+            mReport.append("  ").append(Result.NAMES[i]).append(": ").append(String.format(Locale.US, "%.2f", value));
+
+            final String key = name + "." + Result.NAMES[i];
+            if (baseline.contains(key)) {
+                final float base = baseline.getFloat(key, 0);
+                mReport.append(String.format(Locale.US, " (baseline %.2f, %+.1f%%)", base, base != 0 ? (value - base) * 100 / base : 0f));
+            }
+
+            mReport.append('\n');
+        }
+
+        Log.i(TAG, mReport.toString());
+        mReportView.setText(mReport);
+    }
+
+    private void saveBaseline() {
+        final SharedPreferences.Editor editor = getSharedPreferences(PREFS_BASELINE, Context.MODE_PRIVATE).edit();
+
+        for (int scenario = 0; scenario < ITEM_COUNTS.length * 2; scenario++) {
+            for (int i = 0; i < Result.COUNT; i++) {
+                editor.putFloat(getScenarioName(scenario) + "." + Result.NAMES[i], mResults[scenario * Result.COUNT + i]);
+            }
+        }
+
+        editor.commit();
+    }
+
+    private static String getScenarioName(int scenario) {
+        return ITEM_COUNTS[scenario / 2] + (scenario % 2 == 0 ? " items, fixed width" : " items, variable width");
+    }
+
+    private int dpToPx(int dp) {
+        return (int) (dp * getResources().getDisplayMetrics().density + 0.5f);
+    }
+
+    /** The values reported for each scenario, per frame */
+    private static final class Result {
+        static final int GET_VIEW = 0;
+        static final int LAYOUT_PASSES = 1;
+        static final int ALLOCATIONS = 2;
+        static final int FRAME_MILLIS = 3;
+        static final int COUNT = 4;
+
+        static final String[] NAMES = new String[] { "getView calls", "layout passes", "allocations", "wall time ms" };
+    }
+
+    /** An adapter of numbered items that are either all the same width or of a few different widths */
+    private static final class BenchmarkAdapter extends BaseAdapter {
+        private final Context mContext;
+        private final int mCount;
+        private final boolean mFixedWidths;
+        private final int mBaseWidth;
+
+        BenchmarkAdapter(Context context, int count, boolean fixedWidths) {
+            mContext = context;
+            mCount = count;
+            mFixedWidths = fixedWidths;
+            mBaseWidth = (int) (80 * context.getResources().getDisplayMetrics().density);
+        }
+
+        int getItemWidth(int position) {
+            return mFixedWidths ? mBaseWidth : mBaseWidth + (position * 37 % 5) * mBaseWidth / 4;
+        }
+
+        @Override
+        public int getCount() {
+            return mCount;
+        }
+
+        @Override
+        public Object getItem(int position) {
+            return null;
+        }
+
+        @Override
+        public long getItemId(int position) {
+            return position;
+        }
+
+        @Override
+        public boolean hasStableIds() {
+            return true;
+        }
+
+        @Override
+        public View getView(int position, View convertView, ViewGroup parent) {
+            TextView textView = (TextView) convertView;
+
+            if (textView == null) {
+                textView = new TextView(mContext);
+                textView.setLayoutParams(new ViewGroup.LayoutParams(getItemWidth(position), ViewGroup.LayoutParams.MATCH_PARENT));
+            } else {
+                // Reuse the layout params rather than creating new ones for every bind
+                textView.getLayoutParams().width = getItemWidth(position);
+            }
+
+            textView.setText(String.valueOf(position));
+            return textView;
+        }
+    }
+}
@@ -0,0 +1,324 @@
+
+package com.meetme.android.horizontallistview;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Properties;
+
+/**
+ * A micro-benchmark of the {@link HorizontalLayoutEngine} and the {@link ItemWidthCache} a HorizontalListView is built on, run
+ * on a plain JVM against a {@link LayoutBenchmarkHost} that stands in for the view. Each scenario drags, flings, changes the
+ * data, restores the state and jumps to the end of a list of 100, 10,000 or 1,000,000 items with fixed or variable widths, one
+ * frame at a time. It reports the items bound (the adapter's getView calls) and the layout passes the engine made, and the
+ * bytes allocated and wall time per frame.
+ * <p>
+ * The data change, restore and jump to the end follow the view's steps but are scripted here, and no view code runs. A change
+ * to onLayout, the recycler, the measure cache, prefetching or decorations does not show up in the results; the sample app's
+ * ScrollBenchmarkActivity measures those on a device.
+ * <p>
+ * Run it with {@code gradle :benchmark:run}. Pass {@code --args="--save-baseline"} to save the results to baseline.properties,
+ * every later run is compared against it. {@code --baseline <file>} reads and saves another file instead.
+ */
+public class LayoutBenchmark {
+    private static final int[] ITEM_COUNTS = { 100, 10000, 1000000 };
+
+    private static final int VIEWPORT_WIDTH = 1080;
+
+    private static final int DIVIDER_WIDTH = 8;
+
+    private static final int WARMUP_RUNS = 20;
+
+    private static final int MEASURED_RUNS = 50;
+
+    private static final int DRAG_FRAMES = 30;
+
+    private static final int DRAG_DISTANCE = 30;
+
+    private static final int MAX_FLING_FRAMES = 300;
+
+    private static final float FLING_VELOCITY = 8000f;
+
+    private static final float FRAMES_PER_SECOND = 60f;
+
+    private static final float FLING_FRICTION = 0.95f;
+
+    // The most frames one run of the script can take: the first layout, the drag, the fling, the data change, the restore and the
+    // jump to the end with the frame after it
+    private static final int MAX_FRAMES_PER_RUN = 1 + DRAG_FRAMES + MAX_FLING_FRAMES + 4;
+
+    private static final String DEFAULT_BASELINE = "baseline.properties";
+
+    private final LayoutBenchmarkHost mHost = new LayoutBenchmarkHost(VIEWPORT_WIDTH);
+
+    private final HorizontalLayoutEngine mEngine = new HorizontalLayoutEngine(mHost);
+
+    private final com.sun.management.ThreadMXBean mThreadBean;
+
+    private final long mThreadId = Thread.currentThread().getId();
+
+    // The scroll position the children are laid out for, and the farthest it can go as far as is known
+    private int mCurrentX;
+    private int mMaxX;
+
+    // Totals of the measured frames of the current scenario
+    private int mFrameCount;
+    private final long[] mFrameNanos = new long[MEASURED_RUNS * MAX_FRAMES_PER_RUN];
+    private long mAllocatedBytes;
+
+    private LayoutBenchmark() {
+        mEngine.setDividerWidth(DIVIDER_WIDTH);
+
+        final java.lang.management.ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        if (threadBean instanceof com.sun.management.ThreadMXBean && ((com.sun.management.ThreadMXBean) threadBean).isThreadAllocatedMemorySupported()) {
+            mThreadBean = (com.sun.management.ThreadMXBean) threadBean;
+            mThreadBean.setThreadAllocatedMemoryEnabled(true);
+        } else {
+            mThreadBean = null;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        boolean saveBaseline = false;
+        File baselineFile = new File(DEFAULT_BASELINE);
+
+        for (int i = 0; i < args.length; i++) {
+            if ("--save-baseline".equals(args[i])) {
+                saveBaseline = true;
+            } else if ("--baseline".equals(args[i]) && i + 1 < args.length) {
+                baselineFile = new File(args[++i]);
+            } else {
+                System.err.println("Usage: LayoutBenchmark [--save-baseline] [--baseline <file>]");
+                System.exit(1);
+            }
+        }
+
+        final Properties baseline = new Properties();
+        if (!saveBaseline && baselineFile.exists()) {
+            final InputStream in = new FileInputStream(baselineFile);
+            try {
+                baseline.load(in);
+            } finally {
+                in.close();
+            }
+        }
+
+        final LayoutBenchmark benchmark = new LayoutBenchmark();
+        final Properties results = new Properties();
+
+        System.out.println(String.format("%-16s %7s %8s %10s %10s %11s %11s %11s  %s", "scenario", "frames", "layouts", "getView/f",
+                "children/f", "bytes/f", "median ns", "worst ns", baseline.isEmpty() ? "" : "vs baseline"));
+
+        for (int itemCount : ITEM_COUNTS) {
+            for (int variable = 0; variable < 2; variable++) {
+                benchmark.runScenario(itemCount, variable == 1, results, baseline);
+            }
+        }
+
+        if (saveBaseline) {
+            final OutputStream out = new FileOutputStream(baselineFile);
+            try {
+                results.store(out, "LayoutBenchmark baseline");
+            } finally {
+                out.close();
+            }
+
+            System.out.println("Saved the baseline to " + baselineFile.getPath());
+        }
+    }
+
+    private void runScenario(int itemCount, boolean variableWidths, Properties results, Properties baseline) {
+        final String name = (variableWidths ? "variable-" : "fixed-") + itemCount;
+
+        for (int i = 0; i < WARMUP_RUNS; i++) {
+            runScript(itemCount, variableWidths);
+        }
+
+        mFrameCount = 0;
+        mAllocatedBytes = 0;
+        mHost.mBindCount = 0;
+        mHost.mLayoutCount = 0;
+        mHost.mLayoutPassCount = 0;
+
+        for (int i = 0; i < MEASURED_RUNS; i++) {
+            runScript(itemCount, variableWidths);
+        }
+
+        // Frames and layout passes are reported per run, a frame with no children to position makes no pass
+        final double frames = mFrameCount;
+        final double layoutPassesPerRun = (double) mHost.mLayoutPassCount / MEASURED_RUNS;
+        final double bindsPerFrame = mHost.mBindCount / frames;
+        final double childrenPerFrame = mHost.mLayoutCount / frames;
+
+        // The median is reported rather than the mean, which a single garbage collection of a previous run would dominate
+        Arrays.sort(mFrameNanos, 0, mFrameCount);
+        final double nanosPerFrame = mFrameNanos[mFrameCount / 2];
+        final long worstFrameNanos = mFrameNanos[mFrameCount - 1];
+        final double bytesPerFrame = mThreadBean != null ? mAllocatedBytes / frames : Double.NaN;
+
+        results.setProperty(name + ".layoutPassesPerRun", String.valueOf(layoutPassesPerRun));
+        results.setProperty(name + ".getViewPerFrame", String.valueOf(bindsPerFrame));
+        results.setProperty(name + ".bytesPerFrame", String.valueOf(bytesPerFrame));
+        results.setProperty(name + ".nanosPerFrame", String.valueOf(nanosPerFrame));
+
+        System.out.println(String.format("%-16s %7d %8.1f %10.2f %10.2f %11.1f %11.0f %11d  %s", name, mFrameCount / MEASURED_RUNS,
+                layoutPassesPerRun, bindsPerFrame, childrenPerFrame, bytesPerFrame, nanosPerFrame, worstFrameNanos,
+                compare(baseline, name, layoutPassesPerRun, bindsPerFrame, bytesPerFrame, nanosPerFrame)));
+    }
+
+    /** Describes how the results of a scenario differ from the baseline, or an empty string if there is no baseline for it */
+    private static String compare(Properties baseline, String name, double layoutPassesPerRun, double bindsPerFrame,
+            double bytesPerFrame, double nanosPerFrame) {
+        final String nanos = baseline.getProperty(name + ".nanosPerFrame");
+        if (nanos == null) {
+            return "";
+        }
+
+        return String.format("layouts %s, getView %s, bytes %s, time %s",
+                change(baseline.getProperty(name + ".layoutPassesPerRun"), layoutPassesPerRun),
+                change(baseline.getProperty(name + ".getViewPerFrame"), bindsPerFrame),
+                change(baseline.getProperty(name + ".bytesPerFrame"), bytesPerFrame), change(nanos, nanosPerFrame));
+    }
+
+    private static String change(String before, double after) {
+        final double value = before != null ? Double.parseDouble(before) : Double.NaN;
+        if (Double.isNaN(value) || Double.isNaN(after)) {
+            return "n/a";
+        }
+
+        if (value == 0) {
+            return after == 0 ? "+0.0%" : "new";
+        }
+
+        return String.format("%+.1f%%", (after - value) * 100 / value);
+    }
+
+    /** Drags, flings, changes the data, restores the state and jumps to the end of a new list */
+    private void runScript(int itemCount, boolean variableWidths) {
+        mHost.setItems(itemCount, variableWidths);
+        mEngine.reset();
+        mCurrentX = 0;
+        mMaxX = 0;
+
+        // The first layout fills the screen from the first item
+        scrollTo(0);
+
+        for (int i = 0; i < DRAG_FRAMES; i++) {
+            scrollTo(mCurrentX + DRAG_DISTANCE);
+        }
+
+        // A fling slows down a little every frame until it stops or reaches the end
+        float velocity = FLING_VELOCITY;
+        for (int i = 0; i < MAX_FLING_FRAMES && velocity > FRAMES_PER_SECOND && mCurrentX < mMaxX; i++) {
+            scrollTo(mCurrentX + (int) (velocity / FRAMES_PER_SECOND));
+            velocity *= FLING_FRICTION;
+        }
+
+        changeData();
+        restoreState();
+
+        // Jumping to the end only knows the estimated widths of the items it skips
+        jumpTo(mMaxX);
+        scrollTo(mMaxX);
+    }
+
+    /** One frame of a drag or a fling, like onLayout after the scroll position changed */
+    private void scrollTo(int nextX) {
+        final long start = startFrame();
+
+        nextX = Math.max(0, Math.min(nextX, mMaxX));
+        final int dx = mCurrentX - nextX;
+
+        mEngine.removeNonVisibleChildren(dx);
+        mEngine.fillList(dx);
+        mEngine.positionChildren(dx);
+        mCurrentX = nextX;
+        updateMaxX();
+
+        endFrame(start);
+    }
+
+    /** One frame after the adapter said the content of the items on screen changed, which keeps the first of them in place */
+    private void changeData() {
+        final long start = startFrame();
+
+        final int leftPosition = mEngine.getLeftPosition();
+        final int displayOffset = mEngine.getDisplayOffset();
+
+        mHost.mItemWidths.invalidate(leftPosition, mEngine.getRightPosition() - leftPosition + 1);
+        mHost.removeAllChildren();
+        mEngine.startAt(leftPosition, displayOffset);
+        mEngine.fillList(0);
+        mEngine.positionChildren(0);
+        updateMaxX();
+
+        endFrame(start);
+    }
+
+    /** One frame after the state was restored, which only has the scroll position to go on */
+    private void restoreState() {
+        jumpTo(mCurrentX);
+    }
+
+    /** One frame that lays out the list from an anchor found for the given scroll position, like a restore or a jump */
+    private void jumpTo(int scrollX) {
+        final long start = startFrame();
+
+        final int estimate = getEstimatedWidth();
+        final int position = mHost.mItemWidths.getPositionForOffset(scrollX, estimate, DIVIDER_WIDTH);
+        final long offset = mHost.mItemWidths.getOffset(position, estimate, DIVIDER_WIDTH);
+
+        mHost.removeAllChildren();
+        mEngine.startAt(position, (int) (offset - scrollX));
+        mEngine.fillList(0);
+        mEngine.positionChildren(0);
+        mCurrentX = scrollX;
+        updateMaxX();
+
+        endFrame(start);
+    }
+
+    /** Works out how far the list can scroll, estimating the widths of the items after the rightmost child */
+    private void updateMaxX() {
+        final int rightPosition = mEngine.getRightPosition();
+        final int itemCount = mHost.getItemCount();
+
+        final long widthAfterRightEdge = rightPosition >= itemCount - 1 ? 0
+                : mHost.mItemWidths.sumWidths(rightPosition + 1, itemCount, getEstimatedWidth())
+                        + (long) (itemCount - 1 - rightPosition) * DIVIDER_WIDTH;
+
+        mMaxX = mEngine.computeMaxX(mCurrentX, VIEWPORT_WIDTH, widthAfterRightEdge);
+    }
+
+    private int getEstimatedWidth() {
+        final int estimate = mHost.mItemWidths.getEstimatedWidth();
+        return estimate != ItemWidthCache.UNKNOWN_WIDTH ? estimate : 0;
+    }
+
+    private long startFrame() {
+        if (mThreadBean != null) {
+            mAllocatedBytes -= mThreadBean.getThreadAllocatedBytes(mThreadId);
+        }
+
+        return System.nanoTime();
+    }
+
+    private void endFrame(long start) {
+        final long nanos = System.nanoTime() - start;
+
+        if (mThreadBean != null) {
+            mAllocatedBytes += mThreadBean.getThreadAllocatedBytes(mThreadId);
+        }
+
+        if (mFrameCount < mFrameNanos.length) {
+            mFrameNanos[mFrameCount] = nanos;
+        }
+
+        mFrameCount++;
+    }
+}
@@ -0,0 +1,133 @@
+
+package com.meetme.android.horizontallistview;
+
+/**
+ * Stands in for a HorizontalListView while the layout benchmark drives a {@link HorizontalLayoutEngine}. Children are only
+ * widths kept in a ring buffer, and binding an item records its width in an {@link ItemWidthCache} the way the view does.
+ * Nothing is allocated once the buffer is big enough.
+ */
+class LayoutBenchmarkHost implements HorizontalLayoutEngine.Host {
+    private final int mViewportWidth;
+
+    private int mItemCount;
+
+    private boolean mVariableWidths;
+
+    // The widths of the children, mChildCount of them starting at mFirstChild, wrapping around
+    private int[] mChildWidths = new int[64];
+    private int mFirstChild;
+    private int mChildCount;
+
+    final ItemWidthCache mItemWidths = new ItemWidthCache();
+
+    int mBindCount;
+    int mRemoveCount;
+    int mLayoutCount;
+    int mLayoutPassCount;
+
+    LayoutBenchmarkHost(int viewportWidth) {
+        mViewportWidth = viewportWidth;
+    }
+
+    /** Starts again with no children and no known widths */
+    void setItems(int itemCount, boolean variableWidths) {
+        mItemCount = itemCount;
+        mVariableWidths = variableWidths;
+        mItemWidths.clear(itemCount);
+        removeAllChildren();
+    }
+
+    /** Removes every child without the engine, like recycling the children before filling from an anchor */
+    void removeAllChildren() {
+        mRemoveCount += mChildCount;
+        mFirstChild = 0;
+        mChildCount = 0;
+    }
+
+    /** Gets the width an item is measured at, the same every time it is bound */
+    int getItemWidth(int position) {
+        if (!mVariableWidths) {
+            return 200;
+        }
+
+        // Spread the widths from 100 to 400 px without any pattern the engine could benefit from
+        int hash = position * 0x9E3779B1;
+        hash ^= hash >>> 15;
+        return 100 + (hash & 0x7fffffff) % 301;
+    }
+
+    @Override
+    public int getItemCount() {
+        return mItemCount;
+    }
+
+    @Override
+    public int getViewportWidth() {
+        return mViewportWidth;
+    }
+
+    @Override
+    public int getStartPadding() {
+        return 0;
+    }
+
+    @Override
+    public int getChildCount() {
+        return mChildCount;
+    }
+
+    @Override
+    public int getChildWidth(int index) {
+        return mChildWidths[(mFirstChild + index) % mChildWidths.length];
+    }
+
+    @Override
+    public int addChild(int position, boolean atStart) {
+        if (mChildCount == mChildWidths.length) {
+            growChildWidths();
+        }
+
+        final int width = getItemWidth(position);
+        if (atStart) {
+            mFirstChild = (mFirstChild + mChildWidths.length - 1) % mChildWidths.length;
+            mChildWidths[mFirstChild] = width;
+        } else {
+            mChildWidths[(mFirstChild + mChildCount) % mChildWidths.length] = width;
+        }
+
+        mChildCount++;
+        mBindCount++;
+        mItemWidths.setWidth(position, width);
+        return width;
+    }
+
+    @Override
+    public void removeChild(boolean atStart) {
+        if (atStart) {
+            mFirstChild = (mFirstChild + 1) % mChildWidths.length;
+        }
+
+        mChildCount--;
+        mRemoveCount++;
+    }
+
+    @Override
+    public void layoutChild(int index, int left, int width) {
+        // Every pass positions the children from the first one
+        if (index == 0) {
+            mLayoutPassCount++;
+        }
+
+        mLayoutCount++;
+    }
+
+    private void growChildWidths() {
+        final int[] widths = new int[mChildWidths.length * 2];
+        for (int i = 0; i < mChildCount; i++) {
+            widths[i] = getChildWidth(i);
+        }
+
+        mChildWidths = widths;
+        mFirstChild = 0;
+    }
+}